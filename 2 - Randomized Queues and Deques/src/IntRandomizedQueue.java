@@ -0,0 +1,134 @@
+/****************************************************************************
+ * Compilation: javac IntRandomizedQueue.java
+ * Execution: not applicable
+ * Dependencies: StdRandom.java
+ *
+ * This class implements a randomized queue of primitive int values using an
+ * automatic resizing int array. It behaves exactly like RandomizedQueue, but
+ * avoids boxing: items are stored inline in the backing array (4 bytes per
+ * item instead of a reference plus a heap-allocated Integer), and dequeue(),
+ * sample() and the iterator hand back plain ints. Items are kept packed in
+ * positions [0, size) of the array, so a dequeue only touches the randomly
+ * chosen slot and the last one. Each operation (besides creating an
+ * iterator) takes constant amortized time, and space used is proportional
+ * to the number of items currently in the queue.
+ *
+ ***************************************************************************/
+
+import java.util.PrimitiveIterator;
+
+
+public class IntRandomizedQueue implements Iterable<Integer>
+{
+
+    private class IntRandQueueIterator implements PrimitiveIterator.OfInt
+    {
+
+        private int current = 0;
+        private final int[ ] shuffled;
+
+        public IntRandQueueIterator( )
+        {
+            shuffled = new int[size];
+            System.arraycopy(queue, 0, shuffled, 0, size);
+            StdRandom.shuffle(shuffled);
+        }
+
+        public boolean hasNext( )
+        {
+            return current < shuffled.length;
+        }
+
+        public int nextInt( )
+        {
+            if (!hasNext())
+                throw new java.util.NoSuchElementException();
+            return shuffled[current++];
+        }
+
+        public void remove( )
+        {
+            throw new java.lang.UnsupportedOperationException();
+        }
+    }
+
+    private int[ ] queue;  // the actual queue array, items in [0, size)
+    private int size = 0;  // number of items in the queue
+
+    // construct an empty randomized queue
+    public IntRandomizedQueue( )
+    {
+        this(2);
+    }
+
+    // construct an empty randomized queue able to hold capacity items
+    // without resizing (avoids the transient copies of a doubling growth
+    // when the final number of items is known beforehand)
+    public IntRandomizedQueue(final int capacity)
+    {
+        if (capacity < 1)
+            throw new java.lang.IllegalArgumentException();
+        queue = new int[capacity];
+    }
+
+    // delete and return a random item
+    public int dequeue( )
+    {
+        if (isEmpty())
+            throw new java.util.NoSuchElementException();
+
+        final int r = StdRandom.uniform(size);
+        final int item = queue[r];
+        queue[r] = queue[--size];
+        if (size > 0 && size == queue.length / 4)
+            resize(queue.length / 2);
+
+        return item;
+    }
+
+    // add the item
+    public void enqueue(final int item)
+    {
+        if (size == queue.length)
+            resize(2 * queue.length);
+        queue[size++] = item;
+    }
+
+    // is the queue empty?
+    public boolean isEmpty( )
+    {
+        return size == 0;
+    }
+
+    // return an independent iterator over items in random order
+    public PrimitiveIterator.OfInt iterator( )
+    {
+        return new IntRandQueueIterator();
+    }
+
+    // resizes the current queue capacity to a new given one
+    private void resize(final int capacity)
+    {
+        assert capacity >= size;
+
+        final int[ ] copy = new int[capacity];
+        System.arraycopy(queue, 0, copy, 0, size);
+        queue = copy;
+    }
+
+    // return (but do not delete) a random item
+    public int sample( )
+    {
+        if (isEmpty())
+            throw new java.util.NoSuchElementException();
+
+        return queue[StdRandom.uniform(size)];
+    }
+
+    // return the number of items on the queue
+    public int size( )
+    {
+        return size;
+    }
+
+}
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class IntRandomizedQueueTest extends TestCase
+{
+
+    // /////////////////////////////////////////////////////////////////////////
+    // Fields
+    // /////////////////////////////////////////////////////////////////////////
+
+    // Statics
+    private static final int MAX_PROBLEM_SIZE = 10000;
+
+    // Members
+    private IntRandomizedQueue mQueue;
+
+    // Constructors
+
+    @Before
+    public void setUp( ) throws Exception
+    {
+        mQueue = new IntRandomizedQueue();
+    }
+
+    @After
+    public void tearDown( ) throws Exception
+    {
+        mQueue = null;
+    }
+
+    // /////////////////////////////////////////////////////////////////////////
+    // Test
+    // /////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testIsEmpty( )
+    {
+        assertTrue("Initialized queue should be empty", mQueue.isEmpty());
+        assertEquals(0, mQueue.size());
+    }
+
+    @Test
+    public void testBadCapacity( )
+    {
+        try {
+            new IntRandomizedQueue(0);
+            fail("Should have thrown an IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            // Continue
+        }
+    }
+
+    @Test
+    public void testDequeueReturnsEveryItemOnce( )
+    {
+        for (int i = 0; i < MAX_PROBLEM_SIZE; i++) {
+            mQueue.enqueue(i);
+            assertEquals(i + 1, mQueue.size());
+        }
+
+        final boolean[ ] seen = new boolean[MAX_PROBLEM_SIZE];
+        for (int i = MAX_PROBLEM_SIZE; i > 0; i--) {
+            assertEquals(i, mQueue.size());
+            final int item = mQueue.dequeue();
+            assertFalse("Item " + item + " dequeued twice", seen[item]);
+            seen[item] = true;
+        }
+
+        assertTrue(mQueue.isEmpty());
+    }
+
+    @Test
+    public void testSampleDoesNotRemove( )
+    {
+        mQueue.enqueue(7);
+        mQueue.enqueue(7);
+        assertEquals(7, mQueue.sample());
+        assertEquals(2, mQueue.size());
+    }
+
+    @Test
+    public void testRemoveEmpty( )
+    {
+        try {
+            mQueue.dequeue();
+            fail("Expected a NoSuchElementException");
+        } catch (NoSuchElementException nsee) {
+            // Continue
+        }
+
+        try {
+            mQueue.sample();
+            fail("Expected a NoSuchElementException");
+        } catch (NoSuchElementException nsee) {
+            // Continue
+        }
+    }
+
+    @Test
+    public void testIterator( )
+    {
+        for (int i = 0; i < MAX_PROBLEM_SIZE; i++)
+            mQueue.enqueue(i);
+        for (int i = 0; i < MAX_PROBLEM_SIZE / 2; i++)
+            mQueue.dequeue();
+
+        final int[ ] items = new int[mQueue.size()];
+        int n = 0;
+        final PrimitiveIterator.OfInt it = mQueue.iterator();
+        while (it.hasNext())
+            items[n++] = it.nextInt();
+        assertEquals(mQueue.size(), n);
+
+        // iterating does not consume the queue
+        final int[ ] drained = new int[mQueue.size()];
+        for (int i = 0; i < drained.length; i++)
+            drained[i] = mQueue.dequeue();
+
+        Arrays.sort(items);
+        Arrays.sort(drained);
+        assertTrue(Arrays.equals(items, drained));
+
+        try {
+            it.nextInt();
+            fail("Should have thrown a NoSuchElementException.");
+        } catch (NoSuchElementException nsee) {
+            // Continue
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveNotSupported( )
+    {
+        mQueue.enqueue(1);
+        try {
+            mQueue.iterator().remove();
+            fail("Should have thrown an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // Continue
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/****************************************************************************
+ * Compilation: javac ShardedSampler.java
+ * Execution: not applicable
+ * Dependencies: none aside from java libs
+ *
+ * This class selects k whitespace-separated strings uniformly at random from
+ * a set of files, in a single pass and without holding the input in memory.
+ * Every file is split into fixed-size byte ranges (shards) which are handed
+ * out to a pool of worker threads. Each worker keeps its own reservoir of at
+ * most k tokens plus the number of tokens it has seen, and reads its shards
+ * through a plain buffered FileChannel. Tokens are only decoded into Strings
+ * when they are actually taken into a reservoir: the reservoir uses the
+ * skip-based "Algorithm L", so after the first k tokens of a worker it only
+ * needs to look at O(k log(n/k)) of them. Once every shard is consumed, the
+ * per-worker reservoirs are merged into the final sample by repeatedly
+ * picking a reservoir with probability proportional to the number of tokens
+ * it still stands for, and removing a random item from it; this yields a
+ * uniformly chosen k-subset of all the tokens.
+ *
+ * A token belongs to the shard its first byte falls in, so tokens that
+ * straddle a shard boundary are read by exactly one worker. Whitespace is
+ * ASCII whitespace (space, tab, line feed, vertical tab, form feed, carriage
+ * return) and tokens are decoded as UTF-8.
+ *
+ ***************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class ShardedSampler
+{
+
+    private static final long    SHARD_SIZE  = 64L << 20; // bytes per shard
+    private static final int     BUFFER_SIZE = 1 << 20;   // bytes per read
+    private static final Charset UTF8        = Charset.forName("UTF-8");
+
+    // a byte range [start, end) of a file
+    private static class Shard
+    {
+        private final File file;
+        private final long start;
+        private final long end;
+
+        public Shard(final File file, final long start, final long end)
+        {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // a worker: samples the tokens of every shard it takes from the queue
+    private static class Reservoir implements java.util.concurrent.Callable<Reservoir>
+    {
+        private final ConcurrentLinkedQueue<Shard> shards;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Random     random = new Random();
+        private final String[ ]  items;       // sampled tokens
+        private long             seen  = 0;   // tokens seen so far
+        private long             next;        // index of next token to take
+        private double           w;           // Algorithm L state
+
+        private byte[ ]          token = new byte[64]; // token being kept
+        private int              length;               // its length so far
+
+        public Reservoir(final int k, final ConcurrentLinkedQueue<Shard> shards)
+        {
+            this.shards = shards;
+            items = new String[k];
+            if (k > 0) {
+                w = Math.exp(Math.log(random.nextDouble()) / k);
+                next = k + skip();
+            } else
+                next = Long.MAX_VALUE;
+        }
+
+        public Reservoir call( ) throws IOException
+        {
+            for (Shard s = shards.poll(); s != null; s = shards.poll())
+                read(s);
+            return this;
+        }
+
+        // number of tokens sampled
+        private int size( )
+        {
+            return (int) Math.min(seen, items.length);
+        }
+
+        // number of tokens to pass over before taking the next one
+        private long skip( )
+        {
+            final double r = random.nextDouble();
+            return (long) Math.floor(Math.log(r) / Math.log(1 - w));
+        }
+
+        // will the token about to start be taken into the reservoir?
+        private boolean taking( )
+        {
+            return seen < items.length || seen == next;
+        }
+
+        // the current token ended, store it if it was being taken
+        private void endToken(final boolean taken)
+        {
+            if (taken) {
+                final String item = new String(token, 0, length, UTF8);
+                if (seen < items.length)
+                    items[(int) seen] = item;
+                else {
+                    items[random.nextInt(items.length)] = item;
+                    w *= Math.exp(Math.log(random.nextDouble()) / items.length);
+                    next = seen + 1 + skip();
+                }
+            }
+            seen++;
+            length = 0;
+        }
+
+        // append a byte to the token being taken
+        private void append(final byte b)
+        {
+            if (length == token.length)
+                token = Arrays.copyOf(token, 2 * length);
+            token[length++] = b;
+        }
+
+        // scan the tokens that start inside the shard
+        private void read(final Shard shard) throws IOException
+        {
+            final RandomAccessFile raf = new RandomAccessFile(shard.file, "r");
+            try {
+                final FileChannel ch = raf.getChannel();
+                long pos = shard.start;
+
+                // a token running into the shard belongs to the previous one
+                boolean inToken = false;
+                boolean skipping = false;
+                if (pos > 0) {
+                    final ByteBuffer one = ByteBuffer.allocate(1);
+                    ch.read(one, pos - 1);
+                    skipping = !isSpace(one.get(0));
+                }
+
+                boolean taken = false;
+                while (true) {
+                    buffer.clear();
+                    final int n = ch.read(buffer, pos);
+                    if (n <= 0) break;
+
+                    final byte[ ] buf = buffer.array();
+                    for (int i = 0; i < n; i++, pos++) {
+                        final byte b = buf[i];
+                        if (isSpace(b)) {
+                            skipping = false;
+                            if (inToken) {
+                                endToken(taken);
+                                inToken = false;
+                            }
+                            if (pos >= shard.end) return;
+                        } else if (!skipping) {
+                            if (!inToken) {
+                                if (pos >= shard.end) return;
+                                inToken = true;
+                                taken = taking();
+                            }
+                            if (taken) append(b);
+                        }
+                    }
+                }
+                if (inToken) endToken(taken);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    // is b an ASCII whitespace byte?
+    private static boolean isSpace(final byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f'
+                || b == 0x0B;
+    }
+
+    // add every regular file under f (sorted, recursive) to files
+    private static void collect(final File f, final List<File> files)
+    {
+        if (f.isDirectory()) {
+            final File[ ] children = f.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (final File c : children)
+                collect(c, files);
+        } else if (f.isFile())
+            files.add(f);
+        else
+            throw new IllegalArgumentException("Cannot read " + f);
+    }
+
+    // k tokens chosen uniformly at random among all tokens found in the
+    // given files and directories (fewer if there are less than k tokens),
+    // using the given number of worker threads
+    public static String[ ] sample(final int k, final List<File> paths,
+            final int threads) throws IOException
+    {
+        if (k < 0 || threads < 1) throw new IllegalArgumentException();
+
+        final List<File> files = new ArrayList<File>();
+        for (final File p : paths)
+            collect(p, files);
+
+        final ConcurrentLinkedQueue<Shard> shards = new ConcurrentLinkedQueue<Shard>();
+        for (final File f : files)
+            for (long s = 0; s < f.length(); s += SHARD_SIZE)
+                shards.add(new Shard(f, s, Math.min(s + SHARD_SIZE, f.length())));
+
+        final int workers = Math.max(1, Math.min(threads, shards.size()));
+        final ExecutorService pool = Executors.newFixedThreadPool(workers);
+        final List<Reservoir> reservoirs = new ArrayList<Reservoir>();
+        try {
+            final List<Future<Reservoir>> futures = new ArrayList<Future<Reservoir>>();
+            for (int i = 0; i < workers; i++)
+                futures.add(pool.submit(new Reservoir(k, shards)));
+            for (final Future<Reservoir> f : futures)
+                reservoirs.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return merge(k, reservoirs);
+    }
+
+    // merge the reservoirs into one uniform sample of (at most) k items
+    private static String[ ] merge(final int k, final List<Reservoir> reservoirs)
+    {
+        final int r = reservoirs.size();
+        final long[ ] weight = new long[r];   // tokens each one stands for
+        final int[ ] left = new int[r];       // items each one still holds
+        long total = 0;
+        for (int i = 0; i < r; i++) {
+            weight[i] = reservoirs.get(i).seen;
+            left[i] = reservoirs.get(i).size();
+            total += weight[i];
+        }
+
+        final Random random = new Random();
+        final String[ ] sample = new String[(int) Math.min(k, total)];
+        for (int n = 0; n < sample.length; n++) {
+            long t = (long) (random.nextDouble() * total);
+            int i = 0;
+            while (t >= weight[i]) {
+                t -= weight[i];
+                i++;
+            }
+
+            // take a random item out of reservoir i
+            final String[ ] items = reservoirs.get(i).items;
+            final int j = random.nextInt(left[i]);
+            sample[n] = items[j];
+            items[j] = items[--left[i]];
+            weight[i]--;
+            total--;
+        }
+
+        return sample;
+    }
+
+}
@@ -3,8 +3,9 @@
  * Date: 28/08/2012
  * 
  * Compilation: javac Subset.java
- * Execution: java Subset N
- * Dependencies: RandomizedQueue.java StdIn.java StdOut.java
+ * Execution: java Subset k [file-or-directory ...]
+ * Dependencies: RandomizedQueue.java ShardedSampler.java StdIn.java
+ *               StdOut.java
  * 
  * This class implements client code for a subset program. It takes a
  * command-line integer k, reads in a sequence of N strings from standard
@@ -12,19 +13,45 @@
  * the sequence is printed out at most once. It is assumed that k >= 0 and no
  * greater than the number of strings on standard input.
  * 
+ * If files or directories are given after k, the strings are read from all
+ * the files found there instead of standard input. That input is never held
+ * in memory: it is sampled in one pass by ShardedSampler, using one worker
+ * thread per available processor. If the input holds fewer than k strings,
+ * all of them are printed.
+ * 
  * Usage examples:
  * % echo A B C D E F G H I | java Subset 3
  * % echo A B C D E F G H I | java Subset 6
  * % echo AA BB BB BB BB BB CC CC | java Subset 8
+ * % java Subset 10 /var/log/app access.log
  * 
  ***************************************************************************/
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+
 public class Subset
 {
 
     // main method, implements the subset client
-    public static void main(String[ ] args)
+    public static void main(String[ ] args) throws java.io.IOException
     {
+        if (args.length > 1) {
+            final List<File> paths = new ArrayList<File>();
+            for (int i = 1; i < args.length; i++)
+                paths.add(new File(args[i]));
+
+            final int threads = Runtime.getRuntime().availableProcessors();
+            final StringBuilder out = new StringBuilder();
+            for (final String s : ShardedSampler.sample(
+                    Integer.parseInt(args[0]), paths, threads))
+                out.append(s).append('\n');
+            StdOut.print(out);
+            return;
+        }
+
         RandomizedQueue<String> str = new RandomizedQueue<String>();
         while (!StdIn.isEmpty())
             str.enqueue(StdIn.readString());
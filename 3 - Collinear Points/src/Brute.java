@@ -4,21 +4,88 @@
  * 
  * Compilation: javac Brute.java
  * Execution: java Brute input.txt
- * Dependencies: StdDraw.java StdOut.java In.java
+ * Dependencies: StdDraw.java StdOut.java In.java PointArray.java Segment.java
+ *               SegmentSink.java CollinearFinder.java
  * 
  * Description: A brute-force algorithm to find lines inside a given set of
  * points. Lines interpreted as at least 4 collinear points.
  * 
+ * As a CollinearFinder, it reports maximal segments by trying the line
+ * through every pair of points [O(N³)]: the line is reported from the pair
+ * of its two smallest points, by checking every other point against it. It
+ * is meant as a simple correctness oracle for the faster engines.
+ * 
+ * Both searches work on the packed points of a PointArray rather than on
+ * Point objects, and test collinearity exactly with integer cross
+ * products. The direction of the pair (i, j) is worked out once per pair,
+ * and in the four-point search the l loop is only entered for a k that is
+ * already on the line through i and j.
+ * 
  *************************************************************************/
 
-public class Brute
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class Brute implements CollinearFinder
 {
 
-    // check if a given set of four points form a line
-    private static boolean isLine(Point p, Point q, Point r, Point s)
+    // is point k on the line through point i with direction (dx, dy)?
+    private static boolean onLine(final PointArray points, final int i,
+            final long dx, final long dy, final int k)
     {
-        double slope = p.slopeTo(q);
-        return p.slopeTo(r) == slope && p.slopeTo(s) == slope;
+        return dx * (points.y(k) - points.y(i))
+                == dy * (points.x(k) - points.x(i));
+    }
+
+    // all maximal segments of 4 or more collinear points, ordered by first
+    // point; the given array is not modified
+    public List<Segment> segments(final Point[ ] points)
+    {
+        final List<Segment> segments = new ArrayList<Segment>();
+        segments(new PointArray(points), new SegmentSink() {
+            public void segment(final Segment s)
+            {
+                segments.add(s);
+            }
+        });
+        return segments;
+    }
+
+    // stream the maximal segments to the sink, in the same order; the
+    // points are sorted in place
+    public void segments(final PointArray points, final SegmentSink sink)
+    {
+        points.sort();
+        final int N = points.size();
+
+        final int[ ] line = new int[N];
+        for (int i = 0; i < N - 3; i++)
+            for (int j = i + 1; j < N - 2; j++) {
+                final long dx = points.x(j) - points.x(i);
+                final long dy = points.y(j) - points.y(i);
+
+                // skip unless i and j are the two smallest points on the line
+                boolean smallest = true;
+                for (int k = 0; k < j && smallest; k++)
+                    if (k != i && onLine(points, i, dx, dy, k))
+                        smallest = false;
+                if (!smallest) continue;
+
+                int size = 0;
+                line[size++] = i;
+                line[size++] = j;
+                for (int k = j + 1; k < N; k++)
+                    if (onLine(points, i, dx, dy, k))
+                        line[size++] = k;
+
+                if (size >= 4) {
+                    final Point[ ] found = new Point[size];
+                    for (int k = 0; k < size; k++)
+                        found[k] = points.point(line[k]);
+                    sink.segment(new Segment(found));
+                }
+            }
     }
 
     // main method, first and only argument is file to read
@@ -32,30 +99,38 @@ public class Brute
         // read in the input in the points array
         In in = new In(args[0]);
         int N = in.readInt();
-        Point [ ] points = new Point[N];
+        PointArray points = new PointArray(N);
         for (int i = 0; i < N; i++) {
             int x = in.readInt();
             int y = in.readInt();
-            points[i] = new Point(x, y);
-            points[i].draw();
+            points.add(x, y);
+            StdDraw.point(x, y);
         }
 
         // brute-force [O(N⁴)] find the lines, and display them
-        Quick.sort(points);
+        points.sort();
+        StringBuilder print = new StringBuilder();
         for (int i = 0; i < N - 3; i++)
-            for (int j = i + 1; j < N - 2; j++)
-                for (int k = j + 1; k < N - 1; k++)
+            for (int j = i + 1; j < N - 2; j++) {
+                long dx = points.x(j) - points.x(i);
+                long dy = points.y(j) - points.y(i);
+                for (int k = j + 1; k < N - 1; k++) {
+                    if (!onLine(points, i, dx, dy, k)) continue;
                     for (int l = k + 1; l < N; l++)
-                        if (isLine(points[i], points[j], points[k], points[l])) {
-                            StdOut.print(points[i] + " -> ");
-                            StdOut.print(points[j] + " -> ");
-                            StdOut.print(points[k] + " -> ");
-                            StdOut.print(points[l] + "\n");
+                        if (onLine(points, i, dx, dy, l)) {
+                            print.append(points.point(i)).append(" -> ");
+                            print.append(points.point(j)).append(" -> ");
+                            print.append(points.point(k)).append(" -> ");
+                            print.append(points.point(l)).append('\n');
 
-                            points[i].drawTo(points[l]);
+                            StdDraw.line(points.x(i), points.y(i),
+                                    points.x(l), points.y(l));
                         }
+                }
+            }
 
-        // display to screen all at once
+        // print all lines found and display them to screen at once
+        StdOut.print(print);
         StdDraw.show(0);
     }
 
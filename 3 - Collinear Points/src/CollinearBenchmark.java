@@ -0,0 +1,105 @@
+/*************************************************************************
+ * Compilation: javac CollinearBenchmark.java
+ * Execution: java CollinearBenchmark input1.txt input2.txt ...
+ * Dependencies: CollinearFinder.java Brute.java Fast.java HashFast.java
+ *               Point.java Segment.java In.java StdOut.java
+ * 
+ * Description: Times the collinear point engines (single-threaded Fast,
+ * HashFast and, on inputs small enough for its O(N³), Brute) on every input
+ * file given on the command line, and cross-checks that they all find the
+ * same segments. Each engine solves a file a few times to warm up the JIT,
+ * then the best of the following timed runs is reported. The inputs with
+ * many collinear groups (grid*.txt, horizontal*.txt, vertical*.txt) are the
+ * ones where the cost of discarding sub-segments shows, and it grows with
+ * the number of points per line, so larger grids make the difference
+ * clearer.
+ * 
+ * % java CollinearBenchmark grid*.txt horizontal*.txt
+ * grid4x4.txt                  16 segments  fast      0.215 ms  ...
+ * grid5x5.txt                  22 segments  fast      0.140 ms  ...
+ * ...
+ * 
+ *************************************************************************/
+
+import java.util.Collections;
+import java.util.List;
+
+
+public class CollinearBenchmark
+{
+
+    private static final int WARMUP      = 5;    // untimed runs per file
+    private static final int TIMED       = 5;    // timed runs per file
+    private static final int BRUTE_LIMIT = 1000; // largest input for Brute
+
+    // read the points in the given input file
+    private static Point[ ] read(final String filename)
+    {
+        final In in = new In(filename);
+        final int N = in.readInt();
+        final Point[ ] points = new Point[N];
+        for (int i = 0; i < N; i++) {
+            final int x = in.readInt();
+            final int y = in.readInt();
+            points[i] = new Point(x, y);
+        }
+        return points;
+    }
+
+    // the segments found by the engine, in Segment order
+    private static String sorted(final CollinearFinder engine,
+            final Point[ ] points)
+    {
+        final List<Segment> segments = engine.segments(points);
+        Collections.sort(segments);
+        return segments.toString();
+    }
+
+    // best time in milliseconds of the engine on the points
+    private static double time(final CollinearFinder engine,
+            final Point[ ] points)
+    {
+        for (int i = 0; i < WARMUP; i++)
+            engine.segments(points);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED; i++) {
+            final long start = System.nanoTime();
+            engine.segments(points);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[ ] args)
+    {
+        final String[ ] names = { "fast", "hash", "brute" };
+        final CollinearFinder[ ] engines = { new Fast(1), new HashFast(),
+                new Brute() };
+
+        boolean agree = true;
+        for (final String filename : args) {
+            final Point[ ] points = read(filename);
+            final String expected = sorted(engines[0], points);
+
+            final StringBuilder line = new StringBuilder();
+            line.append(String.format("%-24s %6d segments",
+                    new java.io.File(filename).getName(),
+                    engines[0].segments(points).size()));
+            for (int e = 0; e < engines.length; e++) {
+                if (engines[e] instanceof Brute && points.length > BRUTE_LIMIT)
+                    continue;
+                line.append(String.format("  %s %10.3f ms", names[e],
+                        time(engines[e], points)));
+                if (!sorted(engines[e], points).equals(expected)) {
+                    line.append(" (MISMATCH)");
+                    agree = false;
+                }
+            }
+            StdOut.println(line);
+        }
+
+        if (!agree) System.exit(1);
+    }
+
+}
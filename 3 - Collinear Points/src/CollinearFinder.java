@@ -0,0 +1,30 @@
+/*************************************************************************
+ * Compilation: javac CollinearFinder.java
+ * Execution: not applicable
+ * Dependencies: Point.java PointArray.java Segment.java SegmentSink.java
+ * 
+ * Description: The interface shared by the engines that find lines of 4
+ * or more collinear points (Brute, Fast, HashFast), so they can be swapped,
+ * cross-checked and timed against each other on the same inputs. Engines
+ * never draw anything: the segments are either returned in a list or
+ * streamed to a SegmentSink as they are found.
+ * 
+ *************************************************************************/
+
+import java.util.List;
+
+
+public interface CollinearFinder
+{
+
+    // all maximal segments of 4 or more collinear points in the given array
+    // (which is left unmodified); the order of the segments is up to each
+    // engine, but every engine returns the same segments
+    List<Segment> segments(Point[ ] points);
+
+    // stream the same segments, in the same order, to the given sink; the
+    // sink is only ever called from the calling thread, and the points may
+    // be reordered
+    void segments(PointArray points, SegmentSink sink);
+
+}
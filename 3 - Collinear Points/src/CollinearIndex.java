@@ -0,0 +1,208 @@
+/*************************************************************************
+ * Compilation: javac CollinearIndex.java
+ * Execution: not applicable
+ * Dependencies: Point.java PointArray.java Segment.java
+ * 
+ * Description: An index of the maximal segments of 4 or more collinear
+ * points in a set of points that only grows, kept up to date as every point
+ * is inserted rather than recomputed from scratch.
+ * 
+ * A new point p can only create or extend segments through itself, so an
+ * insertion buckets the points already in the index by their reduced
+ * direction from p (as HashFast does for a pivot) in an open-addressing
+ * hash table of primitive arrays, in expected O(N) time. A bucket holds
+ * every point on one line through p: with 3 points it becomes a new
+ * segment, with more it is a segment already in the index that p extends.
+ * The segments are kept by line, in a map keyed by the direction of the
+ * line and its offset dy * x - dx * y (both fit in an int for coordinates
+ * in 0..32767), each with the positions of its points in natural order.
+ * 
+ * As with HashFast, duplicate points are not considered to form lines.
+ * 
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+public class CollinearIndex
+{
+
+    private static final int EMPTY      = -1; // no point / end of a chain
+    private static final int DEGENERATE = 0;  // key of a duplicate point
+
+    // the points of a segment, by position in the index, in natural order
+    private static class Line
+    {
+        private int[ ] points;
+        private int    size;
+
+        Line(final int[ ] points, final int size)
+        {
+            this.points = points;
+            this.size = size;
+        }
+    }
+
+    private final PointArray      points = new PointArray(16);
+    private final Map<Long, Line> lines  = new HashMap<Long, Line>();
+
+    // scratch hash table of an insertion: key, stamp and bucket of a slot
+    private int[ ] keys  = new int[0];
+    private int[ ] stamp = new int[0];
+    private int[ ] head  = new int[0]; // first point of the bucket
+    private int[ ] count = new int[0]; // points in the bucket
+    private int[ ] next  = new int[0]; // bucket chains
+    private int[ ] used  = new int[0]; // slots used by this insertion
+
+    // number of points in the index
+    public int size()
+    {
+        return points.size();
+    }
+
+    // number of maximal segments in the index
+    public int segmentCount()
+    {
+        return lines.size();
+    }
+
+    // is point i before point j in natural order?
+    private boolean less(final int i, final int j)
+    {
+        if (points.y(i) != points.y(j)) return points.y(i) < points.y(j);
+        return points.x(i) < points.x(j);
+    }
+
+    // make room in the scratch table for an insertion among N points
+    private void ensureCapacity(final int N)
+    {
+        if (next.length < N) {
+            next = new int[2 * N];
+            used = new int[2 * N];
+        }
+        if (keys.length >= 2 * N) return;
+
+        int capacity = 4;
+        while (capacity < 4 * N) capacity <<= 1;
+        keys = new int[capacity];
+        stamp = new int[capacity];
+        head = new int[capacity];
+        count = new int[capacity];
+        Arrays.fill(stamp, EMPTY);
+    }
+
+    // insert the point (x, y), creating the segments it completes and
+    // extending the ones it lies on; return how many segments changed
+    public int add(final int x, final int y)
+    {
+        final int p = points.size();
+        points.add(x, y);
+        ensureCapacity(p);
+
+        // bucket the points already in the index by their direction from p
+        final int mask = keys.length - 1;
+        int slots = 0;
+        for (int j = p - 1; j >= 0; j--) {
+            final int key = points.direction(p, j);
+
+            int s = hash(key) & mask;
+            while (stamp[s] == p && keys[s] != key)
+                s = s + 1 & mask;
+
+            if (stamp[s] != p) {
+                stamp[s] = p;
+                keys[s] = key;
+                head[s] = EMPTY;
+                count[s] = 0;
+                used[slots++] = s;
+            }
+            next[j] = head[s];
+            head[s] = j;
+            count[s]++;
+        }
+
+        // every bucket of 3 or more points is a line through p
+        int changed = 0;
+        for (int u = 0; u < slots; u++) {
+            final int s = used[u];
+            if (count[s] < 3 || keys[s] == DEGENERATE) continue;
+
+            final Long line = lineKey(p, keys[s]);
+            final Line found = lines.get(line);
+            if (found == null) lines.put(line, create(p, head[s]));
+            else extend(found, p);
+            changed++;
+        }
+        return changed;
+    }
+
+    // the line through point p with the given direction, as a map key
+    private Long lineKey(final int p, final int direction)
+    {
+        final int dx = direction >> 16;
+        final int dy = (short) direction;
+        final int offset = dy * points.x(p) - dx * points.y(p);
+        return (long) direction << 32 | offset & 0xFFFFFFFFL;
+    }
+
+    // a new segment of point p and the points chained from head
+    private Line create(final int p, final int head)
+    {
+        final int[ ] line = new int[8];
+        int size = 0;
+        line[size++] = p;
+        for (int j = head; j != EMPTY; j = next[j])
+            line[size++] = j;
+
+        // insertion sort of the (4) points in natural order
+        for (int i = 1; i < size; i++)
+            for (int j = i; j > 0 && less(line[j], line[j - 1]); j--) {
+                final int t = line[j];
+                line[j] = line[j - 1];
+                line[j - 1] = t;
+            }
+        return new Line(line, size);
+    }
+
+    // add point p to the segment, keeping its points in natural order
+    private void extend(final Line line, final int p)
+    {
+        if (line.size == line.points.length)
+            line.points = Arrays.copyOf(line.points, 2 * line.size);
+
+        int i = line.size++;
+        while (i > 0 && less(p, line.points[i - 1])) {
+            line.points[i] = line.points[i - 1];
+            i--;
+        }
+        line.points[i] = p;
+    }
+
+    // mix the bits of a key before reducing it to a table slot
+    private static int hash(final int key)
+    {
+        final int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    // all maximal segments of the points inserted so far, ordered by first
+    // point, then by last point
+    public List<Segment> segments()
+    {
+        final List<Segment> segments = new ArrayList<Segment>(lines.size());
+        for (final Line line : lines.values()) {
+            final Point[ ] found = new Point[line.size];
+            for (int i = 0; i < line.size; i++)
+                found[i] = points.point(line.points[i]);
+            segments.add(new Segment(found));
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+}
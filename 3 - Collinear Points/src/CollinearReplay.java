@@ -0,0 +1,121 @@
+/*************************************************************************
+ * Compilation: javac CollinearReplay.java
+ * Execution: java CollinearReplay [-batches B] input1.txt input2.txt ...
+ * Dependencies: CollinearIndex.java Fast.java PointArray.java Segment.java
+ *               SegmentSink.java In.java StdOut.java
+ * 
+ * Description: Replays every input file given on the command line as a
+ * feed of points arriving one at a time, and compares keeping the segments
+ * current with a CollinearIndex against recomputing them from scratch with
+ * a single-threaded Fast. The points are cut into B batches (10 by
+ * default): the index takes the points one insertion at a time and its
+ * segments are read after every batch, while Fast is run once per batch on
+ * all the points received so far. The segments of both are cross-checked
+ * at the end of every batch, and the total times are reported, along with
+ * the mean time of a single insertion.
+ * 
+ * % java CollinearReplay input2000.txt grid6x6.txt
+ * input2000.txt             2000 points      0 segments  index ...
+ * grid6x6.txt                 36 points     44 segments  index ...
+ * 
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+public class CollinearReplay
+{
+
+    // read the points in the given input file
+    private static PointArray read(final String filename)
+    {
+        final In in = new In(filename);
+        final int N = in.readInt();
+        final PointArray points = new PointArray(N);
+        for (int i = 0; i < N; i++) {
+            final int x = in.readInt();
+            final int y = in.readInt();
+            points.add(x, y);
+        }
+        return points;
+    }
+
+    // the first n points of the array, in a new array
+    private static PointArray prefix(final PointArray points, final int n)
+    {
+        final PointArray prefix = new PointArray(n);
+        for (int i = 0; i < n; i++)
+            prefix.add(points.x(i), points.y(i));
+        return prefix;
+    }
+
+    public static void main(String[ ] args)
+    {
+        int batches = 10;
+
+        // parse the options
+        int a = 0;
+        for (; a < args.length && args[a].startsWith("-"); a++) {
+            if (args[a].equals("-batches"))
+                batches = Integer.parseInt(args[++a]);
+            else throw new IllegalArgumentException("Unknown option " + args[a]);
+        }
+
+        final Fast fast = new Fast(1);
+        boolean agree = true;
+        for (; a < args.length; a++) {
+            final PointArray points = read(args[a]);
+            final int N = points.size();
+            final int B = Math.max(1, Math.min(batches, N));
+
+            final CollinearIndex index = new CollinearIndex();
+            long indexTime = 0;
+            long fastTime = 0;
+            boolean same = true;
+            for (int b = 1; b <= B; b++) {
+                final int from = index.size();
+                final int to = (int) ((long) N * b / B);
+
+                long start = System.nanoTime();
+                for (int i = from; i < to; i++)
+                    index.add(points.x(i), points.y(i));
+                final List<Segment> current = index.segments();
+                indexTime += System.nanoTime() - start;
+
+                final PointArray received = prefix(points, to);
+                start = System.nanoTime();
+                final List<Segment> recomputed = new ArrayList<Segment>();
+                fast.segments(received, new SegmentSink() {
+                    public void segment(final Segment s)
+                    {
+                        recomputed.add(s);
+                    }
+                });
+                fastTime += System.nanoTime() - start;
+
+                Collections.sort(recomputed);
+                if (!current.toString().equals(recomputed.toString()))
+                    same = false;
+            }
+
+            final StringBuilder line = new StringBuilder();
+            line.append(String.format("%-24s %6d points %6d segments",
+                    new java.io.File(args[a]).getName(), N,
+                    index.segmentCount()));
+            line.append(String.format("  index %10.3f ms (%.2f us/insert)",
+                    indexTime / 1e6, N == 0 ? 0.0 : indexTime / 1e3 / N));
+            line.append(String.format("  fast x%d %10.3f ms", B,
+                    fastTime / 1e6));
+            if (!same) {
+                line.append(" (MISMATCH)");
+                agree = false;
+            }
+            StdOut.println(line);
+        }
+
+        if (!agree) System.exit(1);
+    }
+
+}
@@ -4,27 +4,196 @@
  * 
  * Compilation: javac Fast.java
  * Execution: java Fast input.txt
- * Dependencies: StdDraw.java StdOut.java In.java
+ * Dependencies: StdDraw.java StdOut.java In.java PointArray.java
+ *               Segment.java SegmentSink.java CollinearFinder.java
  * 
  * Description: A Fast (N²logN) algorithm to find lines inside a given
  * set of
  * points. Lines interpreted as at least 4 collinear points.
  * 
+ * The points are kept packed in a PointArray, and the other points are put
+ * in slope order around each pivot by a primitive sort of their slope keys.
+ * 
+ * Every point is used as a pivot independently of the others, so pivots
+ * are shared out among a configurable number of worker threads, each with
+ * its own scratch arrays. The segments found from each pivot are kept apart
+ * and passed on in pivot order, so the result is the same (and in the same
+ * order) whatever the number of threads.
+ * 
  *************************************************************************/
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
-public class Fast
+public class Fast implements CollinearFinder
 {
 
-    // search backwards to find a point with a given slope to p
-    private static boolean alreadyDone(Point[ ] a, int N, Point p, double slp)
+    private final int parallelism; // number of worker threads
+
+    // create a finder that uses the given number of worker threads
+    public Fast(final int parallelism)
+    {
+        if (parallelism < 1) throw new java.lang.IllegalArgumentException();
+        this.parallelism = parallelism;
+    }
+
+    // maximal segments that start at point i (points in natural order):
+    // the points after it are sorted by slope to it, and every group of 3
+    // or more of them with equal slope is a candidate. A candidate is only a
+    // sub-segment if some point before i lies on the same line, so when
+    // there are candidates, the points before i are walked once and their
+    // slopes looked up (by binary search) among the candidate slopes, which
+    // come out of the slope sort already in increasing order
+    private static Segment[ ] segmentsFrom(final PointArray points,
+            final int i, final long[ ] keys)
+    {
+        final int N = points.size();
+        final int M = N - i - 1;
+        points.slopeOrder(i, i + 1, N, keys);
+
+        // find the candidate groups: first position and size of each
+        int count = 0;
+        long[ ] slopes = null;
+        int[ ] first = null;
+        int[ ] sizes = null;
+
+        int size = 1;
+        for (int j = 0; j < M - 2; j += size, size = 1) {
+            final long slope = PointArray.slope(keys[j]);
+
+            while (j + size < M && PointArray.slope(keys[j + size]) == slope)
+                size++;
+
+            if (size < 3) continue;
+
+            if (count == 0) {
+                slopes = new long[4];
+                first = new int[4];
+                sizes = new int[4];
+            } else if (count == slopes.length) {
+                slopes = Arrays.copyOf(slopes, 2 * count);
+                first = Arrays.copyOf(first, 2 * count);
+                sizes = Arrays.copyOf(sizes, 2 * count);
+            }
+            slopes[count] = slope;
+            first[count] = j;
+            sizes[count] = size;
+            count++;
+        }
+
+        if (count == 0) return new Segment[0];
+
+        // discard the candidates that have a point before i on their line
+        final boolean[ ] done = new boolean[count];
+        for (int k = 0; k < i; k++) {
+            final int c = Arrays.binarySearch(slopes, 0, count,
+                    points.slopeTo(i, k));
+            if (c >= 0) done[c] = true;
+        }
+
+        final List<Segment> found = new ArrayList<Segment>();
+        for (int c = 0; c < count; c++) {
+            if (done[c]) continue;
+
+            final Point[ ] line = new Point[sizes[c] + 1];
+            line[0] = points.point(i);
+            for (int k = 0; k < sizes[c]; k++)
+                line[k + 1] = points.point(PointArray.index(keys[first[c] + k]));
+            found.add(new Segment(line));
+        }
+
+        return found.toArray(new Segment[found.size()]);
+    }
+
+    // all maximal segments of 4 or more collinear points, ordered by first
+    // point and then by slope; the given array is not modified
+    public List<Segment> segments(final Point[ ] points)
+    {
+        final List<Segment> segments = new ArrayList<Segment>();
+        segments(new PointArray(points), new SegmentSink() {
+            public void segment(final Segment s)
+            {
+                segments.add(s);
+            }
+        });
+        return segments;
+    }
+
+    // stream the maximal segments to the sink, in the same order; the
+    // points are sorted in place. With more than one thread, the segments
+    // of each pivot are handed in by the workers and passed on by the
+    // calling thread as soon as those of every earlier pivot have been
+    public void segments(final PointArray points, final SegmentSink sink)
     {
-        for (int i = N; i >= 0; i--)
-            if (p.slopeTo(a[i]) == slp)
-                return true;
-        return false;
+        points.sort();
+        final int N = points.size();
+        final int pivots = Math.max(N - 3, 0);
+
+        final int threads = Math.min(parallelism, pivots);
+        if (threads <= 1) {
+            final long[ ] keys = new long[N];
+            for (int i = 0; i < pivots; i++)
+                for (final Segment s : segmentsFrom(points, i, keys))
+                    sink.segment(s);
+            return;
+        }
+
+        final Segment[ ][ ] found = new Segment[pivots][ ];
+        final AtomicInteger next = new AtomicInteger();
+        final Throwable[ ] failure = new Throwable[1];
+
+        // each worker takes the next unprocessed pivot until none are left
+        final Runnable worker = new Runnable() {
+            public void run()
+            {
+                try {
+                    final long[ ] keys = new long[N];
+                    for (int i = next.getAndIncrement(); i < pivots;
+                            i = next.getAndIncrement()) {
+                        final Segment[ ] s = segmentsFrom(points, i, keys);
+                        synchronized (found) {
+                            found[i] = s;
+                            found.notifyAll();
+                        }
+                    }
+                } catch (Throwable t) {
+                    synchronized (found) {
+                        failure[0] = t;
+                        found.notifyAll();
+                    }
+                }
+            }
+        };
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++)
+                pool.execute(worker);
+
+            for (int i = 0; i < pivots; i++) {
+                final Segment[ ] s;
+                synchronized (found) {
+                    while (found[i] == null && failure[0] == null)
+                        found.wait();
+                    if (failure[0] != null)
+                        throw new java.lang.RuntimeException(failure[0]);
+                    s = found[i];
+                    found[i] = null;
+                }
+                for (final Segment segment : s)
+                    sink.segment(segment);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new java.lang.RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
     }
 
     // main method, first and only argument is file to read
@@ -47,36 +216,12 @@ public class Fast
         }
         StdDraw.show(0);
 
-        Arrays.sort(points);
+        // fast-find [O(N²logN)] lines, using every available processor
+        Fast fast = new Fast(Runtime.getRuntime().availableProcessors());
         StringBuilder print = new StringBuilder();
-
-        // fast-find [O(N²logN)] lines, and display them
-        Point[ ] slopeOrder;
-        for (int i = 0; i < N - 3; i++) {
-            Point p = points[i];
-
-            slopeOrder = Arrays.copyOfRange(points, i + 1, N); // points.clone();
-            Arrays.sort(slopeOrder, p.SLOPE_ORDER);
-
-            int size = 1;
-            for (int j = 0; j < slopeOrder.length - 2; j += size, size = 1) {
-                double slope = p.slopeTo(slopeOrder[j]);
-
-                while (j + size < slopeOrder.length
-                        && p.slopeTo(slopeOrder[j + size]) == slope)
-                    size++;
-
-                if (size < 3 || alreadyDone(points, i, p, slope))
-                    continue;
-
-                print.append(p + " -> ");
-                for (int k = 0; k < size - 1; k++)
-                    print.append(slopeOrder[j + k] + " -> ");
-                print.append(slopeOrder[j + size - 1] + "\n");
-
-                p.drawTo(slopeOrder[j + size - 1]);
-                StdDraw.show(0);
-            }
+        for (Segment s : fast.segments(points)) {
+            print.append(s).append('\n');
+            s.draw();
         }
 
         // print all lines found and display them to screen at once
@@ -0,0 +1,166 @@
+/*************************************************************************
+ * Compilation: javac HashFast.java
+ * Execution: java HashFast input.txt
+ * Dependencies: StdDraw.java StdOut.java In.java Point.java PointArray.java
+ *               Segment.java SegmentSink.java CollinearFinder.java
+ * 
+ * Description: An expected O(N²) algorithm to find lines inside a given
+ * set of points. Lines interpreted as at least 4 collinear points.
+ * 
+ * Like Fast, every point p is taken in turn as a pivot, but instead of
+ * sorting the other points by slope they are bucketed by the direction
+ * from p to them, reduced to lowest terms (dx/g, dy/g) and turned to point
+ * rightwards (or upwards when vertical), so that all the points on a line
+ * through p share the same key whatever side of p they are on (see
+ * PointArray.direction()). The keys are stored in an open-addressing hash
+ * table of primitive arrays which is allocated once: a table slot belongs
+ * to the current pivot only if its stamp equals the pivot number, so it
+ * never has to be cleared.
+ * Only the points after the pivot (in natural order) are bucketed, and each
+ * bucket chains its points in the order they were added, so a bucket of 3
+ * or more points, together with the pivot, is a segment in natural order.
+ * It is a maximal one unless some point before the pivot lies on the same
+ * line; when the pivot has any such candidate buckets, the points before it
+ * are looked up (but not added) in the table to rule those lines out.
+ * 
+ * Coordinates are assumed to be in 0..32767, so reduced deltas fit in 16
+ * bits each. Duplicate points are not considered to form lines.
+ * 
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class HashFast implements CollinearFinder
+{
+
+    private static final int EMPTY      = -1; // no point / end of a chain
+    private static final int DEGENERATE = 0;  // key of a duplicate point
+
+    // mix the bits of a key before reducing it to a table slot
+    private static int hash(final int key)
+    {
+        final int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    // all maximal segments of 4 or more collinear points, ordered by first
+    // point; the given array is not modified
+    public List<Segment> segments(final Point[ ] points)
+    {
+        final List<Segment> segments = new ArrayList<Segment>();
+        segments(new PointArray(points), new SegmentSink() {
+            public void segment(final Segment s)
+            {
+                segments.add(s);
+            }
+        });
+        return segments;
+    }
+
+    // stream the maximal segments to the sink, in the same order; the
+    // points are sorted in place
+    public void segments(final PointArray points, final SegmentSink sink)
+    {
+        points.sort();
+        final int N = points.size();
+
+        // the hash table, at most half full: key, stamp and bucket of a slot
+        int capacity = 4;
+        while (capacity < 2 * N) capacity <<= 1;
+        final int mask = capacity - 1;
+        final int[ ] keys = new int[capacity];
+        final int[ ] stamp = new int[capacity];
+        final int[ ] head = new int[capacity];  // first point of the bucket
+        final int[ ] tail = new int[capacity];  // last point of the bucket
+        final int[ ] count = new int[capacity]; // points in the bucket
+        Arrays.fill(stamp, EMPTY);
+
+        final int[ ] next = new int[N];         // bucket chains
+        final int[ ] used = new int[N];         // slots used by this pivot
+
+        for (int i = 0; i < N - 3; i++) {
+
+            // bucket the points after the pivot by their direction from it
+            int slots = 0;
+            int candidates = 0;
+            for (int j = i + 1; j < N; j++) {
+                final int key = points.direction(i, j);
+
+                int s = hash(key) & mask;
+                while (stamp[s] == i && keys[s] != key)
+                    s = s + 1 & mask;
+
+                next[j] = EMPTY;
+                if (stamp[s] != i) {
+                    stamp[s] = i;
+                    keys[s] = key;
+                    head[s] = j;
+                    count[s] = 0;
+                    used[slots++] = s;
+                } else
+                    next[tail[s]] = j;
+                tail[s] = j;
+                if (++count[s] == 3) candidates++;
+            }
+            if (candidates == 0) continue;
+
+            // a line with a point before the pivot was already reported
+            for (int j = 0; j < i; j++) {
+                final int key = points.direction(i, j);
+
+                int s = hash(key) & mask;
+                while (stamp[s] == i && keys[s] != key)
+                    s = s + 1 & mask;
+                if (stamp[s] == i) count[s] = 0;
+            }
+
+            // report the lines on which the pivot is the smallest point
+            for (int u = 0; u < slots; u++) {
+                final int s = used[u];
+                if (count[s] < 3 || keys[s] == DEGENERATE) continue;
+
+                final Point[ ] line = new Point[count[s] + 1];
+                line[0] = points.point(i);
+                int k = 1;
+                for (int j = head[s]; j != EMPTY; j = next[j])
+                    line[k++] = points.point(j);
+                sink.segment(new Segment(line));
+            }
+        }
+    }
+
+    // main method, first and only argument is file to read
+    public static void main(String[ ] args)
+    {
+        // re-scale coordinates and turn on animation mode
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        StdDraw.show(0);
+
+        // read in the input in the points array
+        In in = new In(args[0]);
+        int N = in.readInt();
+        Point[ ] points = new Point[N];
+        for (int i = 0; i < N; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            points[i] = new Point(x, y);
+            points[i].draw();
+        }
+        StdDraw.show(0);
+
+        // hash-find [O(N²) expected] lines
+        StringBuilder print = new StringBuilder();
+        for (Segment s : new HashFast().segments(points)) {
+            print.append(s).append('\n');
+            s.draw();
+        }
+
+        // print all lines found and display them to screen at once
+        StdOut.print(print);
+        StdDraw.show(0);
+    }
+}
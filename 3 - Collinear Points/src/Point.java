@@ -16,7 +16,12 @@ import java.util.Comparator;
 public class Point implements Comparable<Point>
 {
 
-    // class that implements the slope order comparator
+    // class that implements the slope order comparator: compares the slopes
+    // dy1/dx1 and dy2/dx2 exactly through the sign of the cross product
+    // dy1*dx2 - dy2*dx1 (after turning both directions to dx >= 0), so no
+    // division is done and points on the same line always compare equal.
+    // The order is the same as the one given by slopeTo(): this point itself
+    // first, then increasing slopes, then vertical lines last
     private class SlopeOrder implements Comparator<Point>
     {
         public int compare(final Point q1, final Point q2)
@@ -24,11 +29,19 @@ public class Point implements Comparable<Point>
             if (q1 == null) throw new java.lang.RuntimeException();
             if (q2 == null) throw new java.lang.RuntimeException();
 
-            final double slope1 = slopeTo(q1);
-            final double slope2 = slopeTo(q2);
+            long dx1 = q1.x - x, dy1 = q1.y - y;
+            long dx2 = q2.x - x, dy2 = q2.y - y;
 
-            if (slope1 < slope2) return -1;
-            if (slope1 > slope2) return +1;
+            final int class1 = slopeClass(dx1, dy1);
+            final int class2 = slopeClass(dx2, dy2);
+            if (class1 != class2) return class1 < class2 ? -1 : +1;
+            if (class1 != 1) return 0;
+
+            if (dx1 < 0) { dx1 = -dx1; dy1 = -dy1; }
+            if (dx2 < 0) { dx2 = -dx2; dy2 = -dy2; }
+            final long cross = dy1 * dx2 - dy2 * dx1;
+            if (cross < 0) return -1;
+            if (cross > 0) return +1;
             return 0;
         }
     }
@@ -45,6 +58,26 @@ public class Point implements Comparable<Point>
         this.y = y;
     }
 
+    // kind of slope of the direction (dx, dy): 0 for a degenerate one (same
+    // point), 1 for a finite slope and 2 for a vertical one
+    private static int slopeClass(final long dx, final long dy)
+    {
+        if (dx != 0) return 1;
+        return dy == 0 ? 0 : 2;
+    }
+
+    // x-coordinate of this point (for the engines that work on coordinates)
+    int x()
+    {
+        return x;
+    }
+
+    // y-coordinate of this point (for the engines that work on coordinates)
+    int y()
+    {
+        return y;
+    }
+
     // is this point lexicographically smaller than that one?
     public int compareTo(final Point that)
     {
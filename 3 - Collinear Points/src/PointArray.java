@@ -0,0 +1,176 @@
+/*************************************************************************
+ * Compilation: javac PointArray.java
+ * Execution: not applicable
+ * Dependencies: Point.java
+ *
+ * Description: A growable array of points in the plane, each one packed
+ * into a single long (y in the high 32 bits, x in the low 32 bits), for a
+ * total of 8 bytes per point and no per-point object. With this packing the
+ * numeric order of the longs is the natural order of the points (by y, then
+ * by x), so sorting the points is a primitive sort of a long[].
+ *
+ * The slope order relative to a pivot is also a primitive sort: each point
+ * is given a long slope key whose 42 high bits encode its slope to the
+ * pivot and whose 22 low bits hold its position in the array, so sorted
+ * keys come out by slope and, within a slope, in array order. The slope
+ * bits are the IEEE bits of the slope as returned by Point.slopeTo() (so
+ * +0.0 for horizontal lines and infinities for vertical and degenerate
+ * ones), turned into a signed-comparable long and cut down to 30 mantissa
+ * bits. This is exact for coordinates in 0..32767: two different slopes
+ * dy/dx there differ by a factor of more than 1 + 2^-30, which always shows
+ * within 30 mantissa bits, while equal slopes have identical bits. An
+ * array thus holds at most 2^22 (about 4 million) points, which add()
+ * checks.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+
+
+public class PointArray
+{
+
+    private static final int  MAX_COORD  = 32767;             // coordinates
+    private static final int  INDEX_BITS = 22;                // in a key
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private long[ ] points; // packed points
+    private int     size;   // number of points in the array
+
+    // create an empty array with room for capacity points
+    public PointArray(final int capacity)
+    {
+        points = new long[Math.max(capacity, 1)];
+    }
+
+    // create an array with the given points, in the same order
+    public PointArray(final Point[ ] points)
+    {
+        this(points.length);
+        for (final Point p : points)
+            add(p.x(), p.y());
+    }
+
+    // pack the point (x, y) into a long
+    private static long pack(final int x, final int y)
+    {
+        return (long) y << 32 | x;
+    }
+
+    // add the point (x, y) at the end of the array
+    public void add(final int x, final int y)
+    {
+        if (x < 0 || x > MAX_COORD || y < 0 || y > MAX_COORD)
+            throw new java.lang.IllegalArgumentException("(" + x + ", " + y
+                    + ") out of range");
+        if (size == 1 << INDEX_BITS)
+            throw new java.lang.IllegalArgumentException(
+                    "Too many points for slope keys: " + (size + 1));
+        if (size == points.length)
+            points = Arrays.copyOf(points, 2 * size);
+        points[size++] = pack(x, y);
+    }
+
+    // number of points in the array
+    public int size()
+    {
+        return size;
+    }
+
+    // x-coordinate of the i-th point
+    public int x(final int i)
+    {
+        return (int) points[i];
+    }
+
+    // y-coordinate of the i-th point
+    public int y(final int i)
+    {
+        return (int) (points[i] >>> 32);
+    }
+
+    // the i-th point, as a new Point object
+    public Point point(final int i)
+    {
+        return new Point(x(i), y(i));
+    }
+
+    // sort the points in natural order
+    public void sort()
+    {
+        Arrays.sort(points, 0, size);
+    }
+
+    // slope bits of the slope from point p to point q (see above): equal
+    // for equal slopes, ordered like the slopes
+    public long slopeTo(final int p, final int q)
+    {
+        final int dx = x(q) - x(p);
+        final int dy = y(q) - y(p);
+
+        final double slope;
+        if (dx == 0 && dy == 0) slope = Double.NEGATIVE_INFINITY;
+        else if (dx == 0) slope = Double.POSITIVE_INFINITY;
+        else if (dy == 0) slope = +0.0;
+        else slope = (double) dy / dx;
+
+        long bits = Double.doubleToRawLongBits(slope);
+        if (bits < 0) bits ^= Long.MAX_VALUE;
+        return bits >> INDEX_BITS << INDEX_BITS;
+    }
+
+    // direction from point p to point q reduced to lowest terms (dx/g, dy/g)
+    // and turned to point rightwards, or upwards when vertical, so that it
+    // is the same for every point on a line through p whatever side of p it
+    // is on; packed in an int as dx in the high 16 bits and dy in the low 16
+    // bits, and 0 if the points are equal
+    public int direction(final int p, final int q)
+    {
+        int dx = x(q) - x(p);
+        int dy = y(q) - y(p);
+        if (dx < 0 || dx == 0 && dy < 0) {
+            dx = -dx;
+            dy = -dy;
+        }
+
+        final int g = gcd(dx, Math.abs(dy));
+        if (g == 0) return 0;
+        dx /= g;
+        dy /= g;
+        return dx << 16 | dy & 0xFFFF;
+    }
+
+    // greatest common divisor of two non-negative numbers; 0 if both are 0
+    private static int gcd(int a, int b)
+    {
+        while (b != 0) {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // fill keys[0..hi-lo) with the slope keys of points lo..hi-1 relative to
+    // point p, sorted: by slope, then by position in the array
+    public void slopeOrder(final int p, final int lo, final int hi,
+            final long[ ] keys)
+    {
+        for (int i = lo; i < hi; i++)
+            keys[i - lo] = slopeTo(p, i) | i;
+        Arrays.sort(keys, 0, hi - lo);
+    }
+
+    // position in the array of the point of a slope key
+    public static int index(final long key)
+    {
+        return (int) (key & INDEX_MASK);
+    }
+
+    // slope bits of a slope key, as returned by slopeTo()
+    public static long slope(final long key)
+    {
+        return key & ~INDEX_MASK;
+    }
+
+}
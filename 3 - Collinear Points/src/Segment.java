@@ -0,0 +1,74 @@
+/*************************************************************************
+ * Compilation: javac Segment.java
+ * Execution: not applicable
+ * Dependencies: Point.java
+ * 
+ * Description: An immutable data type for a line segment found by the
+ * collinear point finders: the (at least 4) collinear points it goes
+ * through, in natural order. Segments are ordered by their first point,
+ * then by their last one, which is a total order on maximal segments since
+ * two different lines share at most one point.
+ * 
+ *************************************************************************/
+
+public class Segment implements Comparable<Segment>
+{
+
+    private final Point[ ] points; // the collinear points, in natural order
+
+    // create the segment through the given points, already in natural order
+    public Segment(final Point[ ] points)
+    {
+        if (points.length < 2) throw new java.lang.IllegalArgumentException();
+        this.points = points.clone();
+    }
+
+    // compare segments by first point, then by last point
+    public int compareTo(final Segment that)
+    {
+        final int cmp = first().compareTo(that.first());
+        if (cmp != 0) return cmp;
+        return last().compareTo(that.last());
+    }
+
+    // draw the segment to standard drawing
+    public void draw()
+    {
+        first().drawTo(last());
+    }
+
+    // the smallest point of the segment
+    public Point first()
+    {
+        return points[0];
+    }
+
+    // the largest point of the segment
+    public Point last()
+    {
+        return points[points.length - 1];
+    }
+
+    // the i-th point of the segment, in natural order
+    public Point point(final int i)
+    {
+        return points[i];
+    }
+
+    // number of points on the segment
+    public int size()
+    {
+        return points.length;
+    }
+
+    // return string representation of this segment: p -> q -> ... -> s
+    public String toString()
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append(points[0]);
+        for (int i = 1; i < points.length; i++)
+            s.append(" -> ").append(points[i]);
+        return s.toString();
+    }
+
+}
@@ -0,0 +1,129 @@
+/*************************************************************************
+ * Compilation: javac SegmentFile.java
+ * Execution: not applicable
+ * Dependencies: Point.java Segment.java SegmentSink.java
+ * 
+ * Description: Compact files of segments, so that finding segments and
+ * drawing them can be separate stages. Two formats are supported:
+ * 
+ *  - text: one segment per line, its number of points n followed by the
+ *    n pairs of coordinates "x y", all separated by single spaces;
+ *  - binary: for each segment, n followed by the n pairs of coordinates,
+ *    every number as an unsigned big-endian 16-bit value (coordinates are
+ *    in 0..32767), i.e. 2 + 4n bytes per segment.
+ * 
+ * Segments are written and read one at a time, never all kept in memory.
+ * 
+ *************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+
+public class SegmentFile
+{
+
+    // a sink that writes every segment it receives to an output stream
+    public static class SegmentWriter implements SegmentSink
+    {
+        private final DataOutputStream out;
+        private final boolean          binary;
+        private final StringBuilder    line = new StringBuilder();
+        private long                   count;
+
+        // write segments to out, in binary or text format
+        public SegmentWriter(final OutputStream out, final boolean binary)
+        {
+            this.out = new DataOutputStream(new BufferedOutputStream(out,
+                    1 << 16));
+            this.binary = binary;
+        }
+
+        // write the segment
+        public void segment(final Segment s)
+        {
+            try {
+                if (binary) {
+                    out.writeShort(s.size());
+                    for (int i = 0; i < s.size(); i++) {
+                        out.writeShort(s.point(i).x());
+                        out.writeShort(s.point(i).y());
+                    }
+                } else {
+                    line.setLength(0);
+                    line.append(s.size());
+                    for (int i = 0; i < s.size(); i++)
+                        line.append(' ').append(s.point(i).x())
+                            .append(' ').append(s.point(i).y());
+                    line.append('\n');
+                    out.writeBytes(line.toString());
+                }
+                count++;
+            } catch (IOException e) {
+                throw new java.lang.RuntimeException(e);
+            }
+        }
+
+        // number of segments written so far
+        public long count()
+        {
+            return count;
+        }
+
+        // flush everything written to the underlying stream
+        public void flush() throws IOException
+        {
+            out.flush();
+        }
+    }
+
+    // read every segment in the stream, in binary or text format, and pass
+    // them on to the sink
+    public static void read(final InputStream in, final boolean binary,
+            final SegmentSink sink) throws IOException
+    {
+        if (binary) {
+            final DataInputStream data = new DataInputStream(
+                    new BufferedInputStream(in, 1 << 16));
+            while (true) {
+                final int n;
+                try {
+                    n = data.readUnsignedShort();
+                } catch (EOFException e) {
+                    return;
+                }
+                final Point[ ] points = new Point[n];
+                for (int i = 0; i < n; i++) {
+                    final int x = data.readUnsignedShort();
+                    final int y = data.readUnsignedShort();
+                    points[i] = new Point(x, y);
+                }
+                sink.segment(new Segment(points));
+            }
+        }
+
+        final BufferedReader text = new BufferedReader(
+                new InputStreamReader(in, "US-ASCII"), 1 << 16);
+        for (String line = text.readLine(); line != null; line = text.readLine()) {
+            if (line.length() == 0) continue;
+            final String[ ] fields = line.split(" ");
+            final int n = Integer.parseInt(fields[0]);
+            if (fields.length != 2 * n + 1)
+                throw new IOException("Malformed segment: " + line);
+            final Point[ ] points = new Point[n];
+            for (int i = 0; i < n; i++)
+                points[i] = new Point(Integer.parseInt(fields[2 * i + 1]),
+                        Integer.parseInt(fields[2 * i + 2]));
+            sink.segment(new Segment(points));
+        }
+    }
+
+}
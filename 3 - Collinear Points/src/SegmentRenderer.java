@@ -0,0 +1,100 @@
+/*************************************************************************
+ * Compilation: javac SegmentRenderer.java
+ * Execution: java SegmentRenderer [options] input.txt segments-file out.png
+ * Dependencies: SegmentFile.java Segment.java Point.java In.java
+ * 
+ * Description: Draws the points of an input file and the segments of a
+ * segments file (as written by CollinearBatch) into a PNG image. Drawing is
+ * done off-screen, on an in-memory image in headless AWT mode, so it works
+ * on machines without a display; coordinates are scaled from 0..32768 to
+ * the size of the image, with the origin at the bottom left.
+ * 
+ * Options:
+ *   -binary      the segments file is in binary format (default text)
+ *   -size S      width and height of the image in pixels (default 1024)
+ * 
+ * % java CollinearBatch input8.txt input8.seg
+ * % java SegmentRenderer input8.txt input8.seg input8.png
+ * 
+ *************************************************************************/
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+
+public class SegmentRenderer
+{
+
+    private static final double SCALE = 32768.0; // coordinate range
+
+    public static void main(String[ ] args) throws IOException
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        boolean binary = false;
+        int size = 1024;
+
+        // parse the options
+        int a = 0;
+        for (; a < args.length && args[a].startsWith("-"); a++) {
+            if (args[a].equals("-binary")) binary = true;
+            else if (args[a].equals("-size"))
+                size = Integer.parseInt(args[++a]);
+            else throw new IllegalArgumentException("Unknown option " + args[a]);
+        }
+        if (args.length - a != 3)
+            throw new IllegalArgumentException(
+                    "Expected input, segments and image file names");
+
+        final BufferedImage image = new BufferedImage(size, size,
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, size, size);
+
+        // draw the points
+        final double f = size / SCALE;
+        final int r = Math.max(1, size / 256);
+        g.setColor(Color.BLACK);
+        final In in = new In(args[a]);
+        final int N = in.readInt();
+        for (int i = 0; i < N; i++) {
+            final int x = in.readInt();
+            final int y = in.readInt();
+            g.fillOval((int) (x * f) - r, size - (int) (y * f) - r, 2 * r, 2 * r);
+        }
+
+        // draw the segments, streaming them from the segments file
+        final int height = size;
+        g.setStroke(new BasicStroke(Math.max(1f, size / 1024f)));
+        final InputStream segments = new FileInputStream(args[a + 1]);
+        try {
+            SegmentFile.read(segments, binary, new SegmentSink() {
+                public void segment(final Segment s)
+                {
+                    final Point p = s.first();
+                    final Point q = s.last();
+                    g.drawLine((int) (p.x() * f), height - (int) (p.y() * f),
+                            (int) (q.x() * f), height - (int) (q.y() * f));
+                }
+            });
+        } finally {
+            segments.close();
+        }
+
+        g.dispose();
+        ImageIO.write(image, "png", new File(args[a + 2]));
+    }
+
+}
@@ -0,0 +1,18 @@
+/*************************************************************************
+ * Compilation: javac SegmentSink.java
+ * Execution: not applicable
+ * Dependencies: Segment.java
+ * 
+ * Description: A callback that receives the segments found by a
+ * CollinearFinder one at a time, as soon as they are found, so they can be
+ * written out or drawn without first collecting them all in memory.
+ * 
+ *************************************************************************/
+
+public interface SegmentSink
+{
+
+    // receive the next segment found
+    void segment(Segment s);
+
+}
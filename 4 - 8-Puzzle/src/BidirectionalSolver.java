@@ -0,0 +1,303 @@
+/****************************************************************************
+ * Compilation: javac BidirectionalSolver.java
+ * Execution: java BidirectionalSolver file.txt
+ * Dependencies: Board.java PackedBoard.java BoardTable.java
+ *               PuzzleSolver.java SearchBudget.java Queue.java In.java
+ *               StdOut.java
+ * 
+ * Description: A bidirectional A* search for the slider puzzle, for
+ * 2-by-2 to 4-by-4 boards packed into longs (see PackedBoard): one search
+ * goes forward from the initial board towards the goal, with the Manhattan
+ * distance to the goal, and another one backward from the goal towards the
+ * initial board, with the Manhattan distance to the initial board (moves
+ * are their own inverses, so it is a search like the other). Each keeps
+ * the boards it reached in a hash table (a BoardTable), with their fewest
+ * moves and previous board, and every board one of them reaches is looked
+ * up in the table of the other: the two paths meet there, and the best
+ * such meeting, the incumbent, is kept.
+ * 
+ * The search that goes on is the one with fewer boards in its priority
+ * queue, which balances the two frontiers, and a board is only queued if
+ * its priority is under the incumbent. Both heuristics are consistent, so
+ * the priority of the next board of either queue is a lower bound on any
+ * solution still to be found, and the search stops as soon as one of them
+ * reaches the incumbent, which is then a shortest solution. As each side
+ * only goes about half way, deep boards take far fewer expansions than a
+ * forward search, though the front-to-end heuristics do not guide each
+ * side towards the frontier of the other, so the two may not meet halfway.
+ * 
+ * The solution is the path of the forward search up to the meeting board,
+ * then that of the backward search from there to the goal. As with
+ * Solver, unsolvable boards are ruled out up front by Board.isSolvable().
+ * 
+ ***************************************************************************/
+
+import java.util.Arrays;
+
+public class BidirectionalSolver implements PuzzleSolver
+{
+
+    private static final int CAPACITY = 1 << 10; // initial number of nodes
+
+    // the search of one direction, from its start board towards its target
+    private final class Direction
+    {
+        private final BoardTable table;    // boards reached
+        private final int [ ]    distance; // of block t at i to the target
+        private Direction        other;    // the search the other way
+
+        private long [ ]  states  = new long[CAPACITY];  // board of a node
+        private long [ ]  parents = new long[CAPACITY];  // previous board
+        private short [ ] moves   = new short[CAPACITY]; // moves made
+        private byte [ ]  blanks  = new byte[CAPACITY];  // position of blank
+        private int       nodes;                         // number of nodes
+
+        private long [ ]  heap    = new long[CAPACITY];  // priority | node
+        private int       open;                          // nodes in the heap
+
+        // a search towards the target board
+        public Direction(final long target)
+        {
+            table = new BoardTable();
+            distance = new int[cells * cells];
+            for (int i = 0; i < cells; i++) {
+                final int t = PackedBoard.tile(target, i);
+                if (t == 0) continue;
+                for (int j = 0; j < cells; j++)
+                    distance[t * cells + j] = Math.abs(i / size - j / size)
+                            + Math.abs(i % size - j % size);
+            }
+        }
+
+        // Manhattan distance of the board to the target
+        private int estimate(final long state)
+        {
+            int sum = 0;
+            for (int i = 0; i < cells; i++)
+                sum += distance[PackedBoard.tile(state, i) * cells + i];
+            return sum;
+        }
+
+        // start the search from the board
+        public void start(final long state)
+        {
+            offer(state, 0, 0, codec.blank(state), estimate(state));
+        }
+
+        // least priority in the queue, or Integer.MAX_VALUE if it is empty
+        public int min()
+        {
+            if (open == 0) return Integer.MAX_VALUE;
+            return (int) (heap[1] >>> 32);
+        }
+
+        // queue the board reached in g moves from parent, unless it cannot
+        // lead to a shorter solution or was already reached in as few moves;
+        // if the other search reached it as well, it is a meeting board
+        private void offer(final long state, final long parent, final int g,
+                final int blank, final int h)
+        {
+            if (g + h >= best) return;
+            final int known = table.moves(state);
+            if (known >= 0 && known <= g) return;
+            table.put(state, g, parent);
+
+            final int there = other.table.moves(state);
+            if (there >= 0 && g + there < best) {
+                best = g + there;
+                meeting = state;
+            }
+
+            if (nodes == states.length) {
+                states = Arrays.copyOf(states, 2 * nodes);
+                parents = Arrays.copyOf(parents, 2 * nodes);
+                moves = Arrays.copyOf(moves, 2 * nodes);
+                blanks = Arrays.copyOf(blanks, 2 * nodes);
+            }
+            states[nodes] = state;
+            parents[nodes] = parent;
+            moves[nodes] = (short) g;
+            blanks[nodes] = (byte) blank;
+            insert((long) (g + h) << 32 | Integer.MAX_VALUE - nodes);
+            nodes++;
+        }
+
+        // expand the node of minimum priority
+        public void step()
+        {
+            final long min = delMin();
+            final int node = Integer.MAX_VALUE - (int) min;
+            final long state = states[node];
+            final int g = moves[node];
+            if (table.moves(state) < g) return; // reached since in fewer
+            if (++expanded % SearchBudget.EVERY == 0)
+                SearchBudget.check(expanded);
+
+            final int h = (int) (min >>> 32) - g;
+            final int blank = blanks[node];
+            final long previous = parents[node];
+
+            // left, right, up and down
+            if (blank % size > 0) neighbor(state, previous, g, h, blank,
+                    blank - 1);
+            if (blank % size < size - 1) neighbor(state, previous, g, h,
+                    blank, blank + 1);
+            if (blank >= size) neighbor(state, previous, g, h, blank,
+                    blank - size);
+            if (blank < size * (size - 1)) neighbor(state, previous, g, h,
+                    blank, blank + size);
+        }
+
+        // queue the neighbor where the block at cell slides into the blank,
+        // unless it is the previous board
+        private void neighbor(final long state, final long previous,
+                final int g, final int h, final int blank, final int cell)
+        {
+            final long next = PackedBoard.slide(state, blank, cell);
+            if (next == previous) return;
+            final int t = PackedBoard.tile(state, cell);
+            offer(next, state, g + 1, cell, h + distance[t * cells + blank]
+                    - distance[t * cells + cell]);
+        }
+
+        // insert a key in the heap
+        private void insert(final long key)
+        {
+            if (open + 1 == heap.length)
+                heap = Arrays.copyOf(heap, 2 * heap.length);
+
+            int k = ++open;
+            while (k > 1 && heap[k / 2] > key) {
+                heap[k] = heap[k / 2];
+                k /= 2;
+            }
+            heap[k] = key;
+        }
+
+        // remove and return the smallest key of the heap
+        private long delMin()
+        {
+            final long min = heap[1];
+            final long last = heap[open--];
+
+            int k = 1;
+            while (2 * k <= open) {
+                int j = 2 * k;
+                if (j < open && heap[j + 1] < heap[j]) j++;
+                if (last <= heap[j]) break;
+                heap[k] = heap[j];
+                k = j;
+            }
+            heap[k] = last;
+            return min;
+        }
+    }
+
+    private final PackedBoard codec;    // packing of the boards
+    private final int         size;     // board dimension N
+    private final int         cells;    // N^2
+    private final Direction   forward;  // search from the initial board
+    private final Direction   backward; // search from the goal
+    private final boolean     solvable;
+    private int               best = Integer.MAX_VALUE; // incumbent moves
+    private long              meeting;  // board where the paths meet
+    private long              expanded; // nodes expanded
+
+    // find a solution to the initial board (using bidirectional A*)
+    public BidirectionalSolver(final Board initial)
+    {
+        size = initial.dimension();
+        cells = size * size;
+        codec = new PackedBoard(size);
+        final long state = codec.pack(initial);
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            forward = null;
+            backward = null;
+            return;
+        }
+
+        forward = new Direction(codec.goal());
+        backward = new Direction(state);
+        forward.other = backward;
+        backward.other = forward;
+        forward.start(state);
+        backward.start(codec.goal());
+
+        while (forward.min() < best && backward.min() < best) {
+            if (forward.open <= backward.open) forward.step();
+            else backward.step();
+        }
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable()
+    {
+        return solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if no solution
+    public int moves()
+    {
+        if (!solvable) return -1;
+        return best;
+    }
+
+    // sequence of boards in a shortest solution; null if no solution
+    public Iterable<Board> solution()
+    {
+        if (!solvable) return null;
+
+        // the forward path, read back from the meeting board
+        final int half = forward.table.moves(meeting);
+        final long [ ] path = new long[half + 1];
+        long state = meeting;
+        for (int k = half; k >= 0; k--) {
+            path[k] = state;
+            state = forward.table.parent(state);
+        }
+
+        final Queue<Board> queue = new Queue<Board>();
+        for (final long board : path)
+            queue.enqueue(codec.unpack(board));
+
+        // then the backward path, from the meeting board on
+        state = meeting;
+        for (int k = backward.table.moves(meeting); k > 0; k--) {
+            state = backward.table.parent(state);
+            queue.enqueue(codec.unpack(state));
+        }
+        return queue;
+    }
+
+    // number of search nodes expanded to find the solution
+    public long expanded()
+    {
+        return expanded;
+    }
+
+    // solve a slider puzzle
+    public static void main(final String [ ] args)
+    {
+        // create initial board from file
+        final In in = new In(args[0]);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        final Board initial = new Board(blocks);
+
+        // solve the puzzle
+        final BidirectionalSolver solver = new BidirectionalSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (final Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -15,34 +15,141 @@
  * square. This type is used to represent any state of the board (a sequence
  * of numbers in some order) at any time.
  * 
+ * The blocks are 0 (the blank) to N^2 - 1, and the goal is the blocks in
+ * order followed by the blank. Every board carries its Manhattan and Hamming
+ * scores: they are worked out once for a board built from blocks, and then
+ * a neighbor gets them from its parent in constant time, as a move only
+ * changes the distance of the block that slides. The row and column of each
+ * position are looked up in a table shared by all boards of a dimension.
+ * Boards also carry a 64-bit Zobrist hash, updated in the same way.
+ * 
+ * A neighbor is made by cloning the grid of its parent, one char per
+ * block, and sliding the one block into the blank, with no int[][] copy
+ * nor any going through the blocks again. neighbors(Visitor) hands the
+ * neighbors over one at a time, for the callers that would rather not
+ * have an Iterable allocated per board, such as a search expanding
+ * millions of them.
+ * 
  ***************************************************************************/
 
 import java.util.Arrays;
 
 public class Board
 {
-    private final char [ ] grid;  // the actual board
-    private final int      size;  // length of the board (square: N-by-N)
-    private final char [ ] solv;  // the solution of this board
+    // receives the neighbors of a board from neighbors(Visitor)
+    public interface Visitor
+    {
+        // visit the neighbor where the blank moved in the given direction
+        // (0 left, 1 right, 2 up, 3 down)
+        void visit(Board neighbor, int direction);
+    }
+
+    // row and column of every position of the N-by-N boards, shared by all
+    // the boards of a dimension; block t belongs at position t - 1
+    private static final class Positions
+    {
+        private final int [ ] row;
+        private final int [ ] col;
+
+        private Positions(final int size)
+        {
+            row = new int[size * size];
+            col = new int[size * size];
+            for (int i = 0; i < size * size; i++) {
+                row[i] = i / size;
+                col[i] = i % size;
+            }
+        }
+    }
+
+    private static Positions [ ] positions = new Positions[0]; // by size
+
+    private final char [ ] grid;       // the actual board
+    private final int      size;       // length of the board (square: N-by-N)
+    private final Positions layout;    // positions of this dimension
+    private final int      blank;      // position of the blank
+    private final int      manhattan;  // sum of Manhattan distances
+    private final int      hamming;    // number of blocks out of place
+    private final long     zobrist;    // Zobrist hash of the blocks
+
+    // the positions of the N-by-N boards
+    private static synchronized Positions positions(final int size)
+    {
+        if (size >= positions.length)
+            positions = Arrays.copyOf(positions, size + 1);
+        if (positions[size] == null) positions[size] = new Positions(size);
+        return positions[size];
+    }
 
     // construct a board from a N-by-N array of blocks
     public Board(final int [ ][ ] blocks)
     {
         size = blocks.length;
         grid = new char[size * size];
-        solv = new char[size * size];
+        layout = positions(size);
 
-        int zero = 0;
+        int zero = -1;
+        int sum = 0;
+        int count = 0;
+        long hash = 0;
+        final boolean [ ] seen = new boolean[size * size];
         for (int i = 0; i < size * size; i++) {
-            grid[i] = (char) blocks[i / size][i % size];
-            solv[i] = (char) blocks[i / size][i % size];
-            if (grid[i] == 0) zero = i;
+            final int t = blocks[i / size][i % size];
+            if (t < 0 || t >= size * size || seen[t])
+                throw new java.lang.IllegalArgumentException(
+                        "Blocks are not 0 to " + (size * size - 1));
+            seen[t] = true;
+            grid[i] = (char) t;
+
+            if (t == 0) zero = i;
+            else {
+                sum += distance(t, i);
+                if (t != i + 1) count++;
+                hash ^= zobrist(t, i);
+            }
         }
 
-        final char swap = solv[zero];
-        solv[zero] = solv[size * size - 1];
-        solv[size * size - 1] = swap;
-        Arrays.sort(solv, 0, size * size - 1);
+        blank = zero;
+        manhattan = sum;
+        hamming = count;
+        zobrist = hash;
+    }
+
+    // construct the board obtained from parent by sliding the block at
+    // position cell into the blank, updating the scores of the parent
+    private Board(final Board parent, final int cell)
+    {
+        size = parent.size;
+        layout = parent.layout;
+        grid = parent.grid.clone();
+
+        final int t = grid[cell];
+        grid[parent.blank] = grid[cell];
+        grid[cell] = 0;
+        blank = cell;
+
+        manhattan = parent.manhattan + distance(t, parent.blank)
+                - distance(t, cell);
+        hamming = parent.hamming + (t != parent.blank + 1 ? 1 : 0)
+                - (t != cell + 1 ? 1 : 0);
+        zobrist = parent.zobrist ^ zobrist(t, cell) ^ zobrist(t, parent.blank);
+    }
+
+    // Manhattan distance of block t at position i from its goal position
+    private int distance(final int t, final int i)
+    {
+        return Math.abs(layout.row[t - 1] - layout.row[i])
+                + Math.abs(layout.col[t - 1] - layout.col[i]);
+    }
+
+    // Zobrist number of block t at position i: rather than kept in a
+    // table, it is the SplitMix64 mix of the pair, which is as good as random
+    private static long zobrist(final int t, final int i)
+    {
+        long z = ((long) t << 32 | i) + 0x9E3779B97F4A7C15L;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
     }
 
     // board dimension N
@@ -51,6 +158,12 @@ public class Board
         return size;
     }
 
+    // block at position i, in row-major order (0 for the blank)
+    int tile(final int i)
+    {
+        return grid[i];
+    }
+
     // does this block equal y?
     public boolean equals(final Object y)
     {
@@ -59,80 +172,81 @@ public class Board
         if (y.getClass() != this.getClass()) return false;
 
         final Board that = (Board) y;
-        return that.size == size && Arrays.equals(that.grid, grid);
+        return that.size == size && that.zobrist == zobrist
+                && Arrays.equals(that.grid, grid);
+    }
+
+    // hash code of the board, from its Zobrist hash
+    public int hashCode()
+    {
+        return (int) (zobrist ^ zobrist >>> 32);
+    }
+
+    // 64-bit Zobrist hash of the board: the exclusive or of a random number
+    // for every block and its position, so a move updates it in O(1)
+    long zobrist()
+    {
+        return zobrist;
     }
 
     // number of blocks out of place
     public int hamming()
     {
-        int count = 0;
-        for (int i = 0; i < size * size; i++)
-            if (grid[i] != 0 && grid[i] != solv[i]) count++;
-        return count;
+        return hamming;
     }
 
     // is this board the goal board?
     public boolean isGoal()
     {
-        return Arrays.equals(grid, solv);
+        return manhattan == 0;
     }
 
     // sum of Manhattan distances between blocks and goal
     public int manhattan()
     {
-        int sum = 0;
-        for (int i = 0; i < size * size; i++)
-            if (grid[i] != 0 && grid[i] != solv[i]) {
-                final int pos = Arrays.binarySearch(solv, grid[i]);
-                final int rowdiff = pos / size - i / size;
-                final int coldiff = pos % size - i % size;
-                sum = sum + Math.abs(rowdiff) + Math.abs(coldiff);
-            }
-
-        return sum;
+        return manhattan;
     }
 
     // all neighboring boards: left, right, up, down
     public Iterable<Board> neighbors()
     {
         final Stack<Board> stack = new Stack<Board>();
-
-        int pos = 0;
-        final int [ ][ ] copy = new int[size][size];
-        for (int i = 0; i < size * size; i++) {
-            copy[i / size][i % size] = grid[i];
-            if (grid[i] == 0) pos = i;
-        }
-
-        // left
-        if (pos % size - 1 >= 0) {
-            swap(copy, pos / size, pos % size - 1, pos / size, pos % size);
-            stack.push(new Board(copy));
-            swap(copy, pos / size, pos % size - 1, pos / size, pos % size);
-        }
-
-        // right
-        if (pos % size + 1 < size) {
-            swap(copy, pos / size, pos % size + 1, pos / size, pos % size);
-            stack.push(new Board(copy));
-            swap(copy, pos / size, pos % size + 1, pos / size, pos % size);
+        for (int direction = 0; direction < 4; direction++) {
+            final Board neighbor = neighbor(direction);
+            if (neighbor != null) stack.push(neighbor);
         }
+        return stack;
+    }
 
-        // up
-        if (pos / size - 1 >= 0) {
-            swap(copy, pos / size - 1, pos % size, pos / size, pos % size);
-            stack.push(new Board(copy));
-            swap(copy, pos / size - 1, pos % size, pos / size, pos % size);
+    // pass all neighboring boards to the visitor, one at a time, with the
+    // direction the blank moves in: left, right, up, down; as nothing
+    // else is allocated, each neighbor costs one board and one grid
+    public void neighbors(final Visitor visitor)
+    {
+        for (int direction = 0; direction < 4; direction++) {
+            final Board neighbor = neighbor(direction);
+            if (neighbor != null) visitor.visit(neighbor, direction);
         }
+    }
 
-        // down
-        if (pos / size + 1 < size) {
-            swap(copy, pos / size + 1, pos % size, pos / size, pos % size);
-            stack.push(new Board(copy));
-            swap(copy, pos / size + 1, pos % size, pos / size, pos % size);
+    // the neighboring board where the blank moves in the given direction
+    // (0 left, 1 right, 2 up, 3 down); null if that is off the board
+    Board neighbor(final int direction)
+    {
+        switch (direction) {
+        case 0:
+            return blank % size > 0 ? new Board(this, blank - 1) : null;
+        case 1:
+            return blank % size < size - 1 ? new Board(this, blank + 1) : null;
+        case 2:
+            return blank >= size ? new Board(this, blank - size) : null;
+        case 3:
+            return blank < size * (size - 1) ? new Board(this, blank + size)
+                    : null;
+        default:
+            throw new java.lang.IllegalArgumentException(
+                    "Not a direction: " + direction);
         }
-
-        return stack;
     }
 
     // swap two coordinates i(x,y) and j(x,y) in a given 2D-array
@@ -157,6 +271,48 @@ public class Board
         return s.toString();
     }
 
+    // can the goal be reached from this board? Every move is a transposition
+    // with the blank, so the parity of the permutation of the blocks (read
+    // in row-major order, without the blank) changes with the row of the
+    // blank: a board is solvable if its number of inversions is even for an
+    // odd N, and if that number plus the row of the blank is odd for an
+    // even N
+    public boolean isSolvable()
+    {
+        final int [ ] blocks = new int[size * size - 1];
+        for (int i = 0, k = 0; i < size * size; i++)
+            if (grid[i] != 0) blocks[k++] = grid[i];
+
+        final long inversions = inversions(blocks, new int[blocks.length], 0,
+                blocks.length);
+        if (size % 2 == 1) return inversions % 2 == 0;
+        return (inversions + blank / size) % 2 == 1;
+    }
+
+    // number of inversions in a[lo..hi), counted while merge sorting it in
+    // O(n log n) time, using aux as scratch space
+    private static long inversions(final int [ ] a, final int [ ] aux,
+            final int lo, final int hi)
+    {
+        if (hi - lo < 2) return 0;
+        final int mid = (lo + hi) >>> 1;
+        long count = inversions(a, aux, lo, mid) + inversions(a, aux, mid, hi);
+
+        System.arraycopy(a, lo, aux, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (i == mid) a[k] = aux[j++];
+            else if (j == hi) a[k] = aux[i++];
+            else if (aux[j] < aux[i]) {
+                count += mid - i;  // aux[j] is less than all of aux[i..mid)
+                a[k] = aux[j++];
+            }
+            else a[k] = aux[i++];
+        }
+        return count;
+    }
+
     // a board obtained by exchanging two adjacent blocks in the same row
     public Board twin()
     {
@@ -0,0 +1,84 @@
+/****************************************************************************
+ * Compilation: javac BoardTable.java
+ * Execution: not applicable
+ * Dependencies: none
+ * 
+ * Description: The boards reached by a search on packed boards (see
+ * PackedBoard), with the fewest moves each one was reached in and the
+ * board it was reached from, so that a path can be read back from any of
+ * them. It is an open-addressing hash table (linear probing) of parallel
+ * primitive arrays, at most half full, doubling when it gets there; 0
+ * marks an empty slot, which is no loss, as no board packs to 0.
+ * 
+ ***************************************************************************/
+
+public class BoardTable
+{
+
+    private static final int CAPACITY = 1 << 10; // initial number of slots
+
+    private long [ ] keys    = new long[CAPACITY]; // board, 0 for empty
+    private int [ ]  moves   = new int[CAPACITY];  // fewest moves to it
+    private long [ ] parents = new long[CAPACITY]; // board it came from
+    private int      size;                         // number of boards
+
+    // number of boards in the table
+    public int size()
+    {
+        return size;
+    }
+
+    // slot of the board, or the empty slot where it would go
+    private int slot(final long key)
+    {
+        final int mask = keys.length - 1;
+        final long h = key * 0xC2B2AE3D27D4EB4FL;
+        int s = (int) (h ^ h >>> 32) & mask;
+        while (keys[s] != 0 && keys[s] != key)
+            s = s + 1 & mask;
+        return s;
+    }
+
+    // fewest moves the board was reached in, or -1 if it was not
+    public int moves(final long key)
+    {
+        final int s = slot(key);
+        return keys[s] == 0 ? -1 : moves[s];
+    }
+
+    // board the board was reached from
+    public long parent(final long key)
+    {
+        return parents[slot(key)];
+    }
+
+    // record that the board was reached in g moves from parent
+    public void put(final long key, final int g, final long parent)
+    {
+        final int s = slot(key);
+        moves[s] = g;
+        parents[s] = parent;
+        if (keys[s] != 0) return;
+        keys[s] = key;
+        if (++size > keys.length / 2) resize();
+    }
+
+    // move the boards to a table twice as large
+    private void resize()
+    {
+        final long [ ] oldKeys = keys;
+        final int [ ] oldMoves = moves;
+        final long [ ] oldParents = parents;
+        keys = new long[2 * oldKeys.length];
+        moves = new int[keys.length];
+        parents = new long[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            final int s = slot(oldKeys[i]);
+            keys[s] = oldKeys[i];
+            moves[s] = oldMoves[i];
+            parents[s] = oldParents[i];
+        }
+    }
+
+}
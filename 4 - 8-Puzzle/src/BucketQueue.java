@@ -0,0 +1,118 @@
+/****************************************************************************
+ * Compilation: javac BucketQueue.java
+ * Execution: not applicable
+ * Dependencies: none
+ *
+ * Description: A priority queue for items with small non-negative integer
+ * priorities, such as the search nodes of A* by their number of moves so
+ * far (g) plus their estimate of the moves left (f = g + h): the items are
+ * kept in buckets by f, and in every one of them by g, and the minimum is
+ * an item of the least f, and of the largest g among those (the one
+ * closest to the goal), the last one inserted if there are several.
+ *
+ * Inserting an item is pushing it onto the stack of its bucket, in
+ * constant time (amortized over the growth of the arrays), and the
+ * minimum is found by moving a pointer up to the first non-empty f and,
+ * within it, one down to the first non-empty g. With a consistent
+ * heuristic f never decreases along a search, and the nodes of the same f
+ * are mostly reached deeper and deeper, so the pointers move by a step at
+ * most on average, and deleting the minimum is amortized constant time as
+ * well, instead of the O(log n) compares of a binary heap.
+ *
+ ***************************************************************************/
+
+public class BucketQueue<Item>
+{
+
+    // the items of one f, by g
+    private static final class Bucket
+    {
+        private Object [ ][ ] items = new Object[0][ ]; // stacks by g
+        private int [ ]       sizes = new int[0];       // their sizes
+        private int           size;                     // number of items
+        private int           top = -1;                 // largest g used
+    }
+
+    private Bucket [ ] buckets = new Bucket[0]; // buckets by f
+    private int        min;                     // least f used
+    private int        size;                    // number of items
+
+    // is the queue empty?
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    // number of items in the queue
+    public int size()
+    {
+        return size;
+    }
+
+    // insert the item with priority f, and g to break ties (larger first)
+    public void insert(final Item item, final int f, final int g)
+    {
+        if (f < 0 || g < 0)
+            throw new java.lang.IllegalArgumentException(
+                    "Negative priority: " + f + ", " + g);
+
+        if (f >= buckets.length)
+            buckets = java.util.Arrays.copyOf(buckets,
+                    Math.max(f + 1, 2 * buckets.length));
+        if (buckets[f] == null) buckets[f] = new Bucket();
+        final Bucket bucket = buckets[f];
+
+        if (g >= bucket.items.length) {
+            final int length = Math.max(g + 1, 2 * bucket.items.length);
+            bucket.items = java.util.Arrays.copyOf(bucket.items, length);
+            bucket.sizes = java.util.Arrays.copyOf(bucket.sizes, length);
+        }
+        if (bucket.items[g] == null) bucket.items[g] = new Object[4];
+        if (bucket.sizes[g] == bucket.items[g].length)
+            bucket.items[g] = java.util.Arrays.copyOf(bucket.items[g],
+                    2 * bucket.sizes[g]);
+
+        bucket.items[g][bucket.sizes[g]++] = item;
+        bucket.size++;
+        if (g > bucket.top) bucket.top = g;
+        if (size == 0 || f < min) min = f;
+        size++;
+    }
+
+    // the bucket of the minimum, with its top at the g of the minimum
+    private Bucket first()
+    {
+        if (size == 0)
+            throw new java.util.NoSuchElementException("Priority queue underflow");
+
+        while (buckets[min] == null || buckets[min].size == 0)
+            min++;
+        final Bucket bucket = buckets[min];
+        while (bucket.sizes[bucket.top] == 0)
+            bucket.top--;
+        return bucket;
+    }
+
+    // an item of least f, then of largest g
+    @SuppressWarnings("unchecked")
+    public Item min()
+    {
+        final Bucket bucket = first();
+        return (Item) bucket.items[bucket.top][bucket.sizes[bucket.top] - 1];
+    }
+
+    // delete and return an item of least f, then of largest g
+    @SuppressWarnings("unchecked")
+    public Item delMin()
+    {
+        final Bucket bucket = first();
+        final Object [ ] stack = bucket.items[bucket.top];
+        final int last = --bucket.sizes[bucket.top];
+        final Item item = (Item) stack[last];
+        stack[last] = null;
+        bucket.size--;
+        size--;
+        return item;
+    }
+
+}
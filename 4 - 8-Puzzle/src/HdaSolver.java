@@ -0,0 +1,419 @@
+/****************************************************************************
+ * Compilation: javac HdaSolver.java
+ * Execution: java HdaSolver [-threads T] file.txt
+ * Dependencies: Board.java PackedBoard.java BoardTable.java
+ *               PuzzleSolver.java SearchBudget.java Stack.java In.java
+ *               StdOut.java
+ * 
+ * Description: A parallel A* search of one board (HDA*, hash distributed
+ * A*), for 2-by-2 to 4-by-4 boards, with the Manhattan priority function
+ * and boards packed into longs as in PackedSolver. Every board belongs to
+ * one of T threads, picked by a hash of the board, and each thread keeps
+ * the open list (a binary heap of longs) and the table of the boards it
+ * owns (a BoardTable), with the fewest moves they have been reached in
+ * and the board they were reached from, so that no data is shared: a
+ * thread expands the boards of its open list, and sends every neighbor to
+ * its owner, which queues it unless it has already reached it in as few
+ * moves.
+ * 
+ * Messages (board, previous board, moves, Manhattan distance and position
+ * of the blank) are buffered per owner and sent in batches through a
+ * concurrent queue per thread, whenever a buffer fills, every few dozen
+ * expansions, and before a thread goes idle, so as to keep the cost of
+ * synchronization low without starving the others.
+ * 
+ * As the threads do not expand the boards in exactly the order of their
+ * priorities overall, the first goal reached may not be through a
+ * shortest path: it only gives a bound, the incumbent, and the search goes
+ * on until no thread has a board of priority less than it left, nor any
+ * message in flight. That is detected with a single counter of the busy
+ * threads plus the batches in flight: a batch counts from before it is
+ * sent until it has been handled, and an idle thread that takes one counts
+ * itself as busy again before it lets go of the batch, so the counter only
+ * gets to 0 once all the work is done. The path is then read back through
+ * the tables of the owners of its boards, which hold the fewest moves for
+ * every board, so it is a shortest one.
+ * 
+ * As with Solver, unsolvable boards are ruled out up front by
+ * Board.isSolvable().
+ * 
+ ***************************************************************************/
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class HdaSolver implements PuzzleSolver
+{
+
+    private static final int  CAPACITY = 1 << 10; // initial number of nodes
+    private static final int  BATCH    = 256;     // messages per batch
+    private static final int  FLUSH    = 64;      // expansions between sends
+    private static final int  MESSAGE  = 3;       // longs per message
+    private static final long IDLE     = 20000;   // nanoseconds to wait idle
+
+    // one of the threads of the search, and the boards it owns
+    private final class Worker implements Runnable
+    {
+        private final int         id;     // owner number
+        private final BoardTable  table;  // boards reached
+        private final long [ ][ ] outbox; // messages to send, by owner
+        private final int [ ]     sizes;  // their lengths
+
+        // batches of messages sent to the thread
+        private final ConcurrentLinkedQueue<long [ ]> inbox =
+                new ConcurrentLinkedQueue<long [ ]>();
+
+        private long [ ]  states  = new long[CAPACITY];   // board of a node
+        private long [ ]  parents = new long[CAPACITY];   // previous board
+        private short [ ] moves   = new short[CAPACITY];  // moves made
+        private byte [ ]  blanks  = new byte[CAPACITY];   // blank position
+        private int       nodes;                          // number of nodes
+
+        private long [ ]  heap    = new long[CAPACITY];   // priority | node
+        private int       open;                           // nodes in heap
+
+        private boolean   busy    = true;                 // counted busy?
+        private long      expanded;                       // nodes expanded
+
+        public Worker(final int id)
+        {
+            this.id = id;
+            table = new BoardTable();
+            outbox = new long[threads][MESSAGE * BATCH];
+            sizes = new int[threads];
+        }
+
+        // expand, send and take boards until the whole search is done
+        public void run()
+        {
+            SearchBudget.set(budget);
+            try {
+                int since = 0;
+                while (!stop) {
+                    final long [ ] batch = inbox.poll();
+                    if (batch != null) {
+                        if (!busy) {
+                            pending.incrementAndGet();
+                            busy = true;
+                        }
+                        for (int i = 0; i < batch.length; i += MESSAGE)
+                            offer(batch[i], batch[i + 1], batch[i + 2]);
+                        pending.decrementAndGet();
+                    }
+                    else if (open > 0 && (heap[1] >>> 32) < incumbent.get()) {
+                        expand();
+                        if (++since == FLUSH) {
+                            since = 0;
+                            flush();
+                        }
+                    }
+                    else if (busy) {
+                        flush();
+                        busy = false;
+                        pending.decrementAndGet();
+                    }
+                    else if (pending.get() == 0) return;
+                    else LockSupport.parkNanos(IDLE);
+                }
+            }
+            catch (final RuntimeException e) {
+                fail(e);
+            }
+            catch (final Error e) {
+                fail(e);
+            }
+            finally {
+                SearchBudget.clear();
+            }
+        }
+
+        // queue the board reached in g moves from parent, with the given
+        // Manhattan distance and position of the blank (packed into info),
+        // unless it cannot lead to a shorter solution or was already reached
+        // in as few moves
+        private void offer(final long state, final long parent,
+                final long info)
+        {
+            final int g = (int) (info >>> 16);
+            final int h = (int) (info >>> 8 & 0xFF);
+            final int blank = (int) (info & 0xFF);
+            if (g + h >= incumbent.get()) return;
+            final int known = table.moves(state);
+            if (known >= 0 && known <= g) return;
+            table.put(state, g, parent);
+
+            if (nodes == states.length) {
+                states = Arrays.copyOf(states, 2 * nodes);
+                parents = Arrays.copyOf(parents, 2 * nodes);
+                moves = Arrays.copyOf(moves, 2 * nodes);
+                blanks = Arrays.copyOf(blanks, 2 * nodes);
+            }
+            states[nodes] = state;
+            parents[nodes] = parent;
+            moves[nodes] = (short) g;
+            blanks[nodes] = (byte) blank;
+            insert((long) (g + h) << 32 | Integer.MAX_VALUE - nodes);
+            nodes++;
+        }
+
+        // expand the node of minimum priority, or record it as the goal
+        private void expand()
+        {
+            final long min = delMin();
+            final int node = Integer.MAX_VALUE - (int) min;
+            final long state = states[node];
+            final int g = moves[node];
+            if (table.moves(state) < g) return; // reached since in fewer
+            if (state == codec.goal()) {
+                for (int best = incumbent.get(); g < best;
+                        best = incumbent.get())
+                    if (incumbent.compareAndSet(best, g)) break;
+                return;
+            }
+            if (++expanded % SearchBudget.EVERY == 0)
+                SearchBudget.check(total.addAndGet(SearchBudget.EVERY));
+
+            final int h = (int) (min >>> 32) - g;
+            final int blank = blanks[node];
+            final long previous = parents[node];
+
+            // left, right, up and down
+            if (blank % size > 0) neighbor(state, previous, g, h, blank,
+                    blank - 1);
+            if (blank % size < size - 1) neighbor(state, previous, g, h,
+                    blank, blank + 1);
+            if (blank >= size) neighbor(state, previous, g, h, blank,
+                    blank - size);
+            if (blank < size * (size - 1)) neighbor(state, previous, g, h,
+                    blank, blank + size);
+        }
+
+        // pass on the neighbor where the block at cell slides into the
+        // blank, unless it is the previous board
+        private void neighbor(final long state, final long previous,
+                final int g, final int h, final int blank, final int cell)
+        {
+            final long next = PackedBoard.slide(state, blank, cell);
+            if (next == previous) return;
+            final long info = (long) (g + 1) << 16
+                    | h + codec.slideDistance(state, blank, cell) << 8 | cell;
+            final int owner = owner(next);
+            if (owner == id) {
+                offer(next, state, info);
+                return;
+            }
+
+            final long [ ] out = outbox[owner];
+            int n = sizes[owner];
+            out[n++] = next;
+            out[n++] = state;
+            out[n++] = info;
+            sizes[owner] = n;
+            if (n == out.length) send(owner);
+        }
+
+        // send the messages buffered for the owner
+        private void send(final int owner)
+        {
+            pending.incrementAndGet();
+            workers[owner].inbox.add(Arrays.copyOf(outbox[owner],
+                    sizes[owner]));
+            sizes[owner] = 0;
+        }
+
+        // send all the messages buffered
+        private void flush()
+        {
+            for (int owner = 0; owner < threads; owner++)
+                if (sizes[owner] > 0) send(owner);
+        }
+
+        // insert a key in the heap
+        private void insert(final long key)
+        {
+            if (open + 1 == heap.length)
+                heap = Arrays.copyOf(heap, 2 * heap.length);
+
+            int k = ++open;
+            while (k > 1 && heap[k / 2] > key) {
+                heap[k] = heap[k / 2];
+                k /= 2;
+            }
+            heap[k] = key;
+        }
+
+        // remove and return the smallest key of the heap
+        private long delMin()
+        {
+            final long min = heap[1];
+            final long last = heap[open--];
+
+            int k = 1;
+            while (2 * k <= open) {
+                int j = 2 * k;
+                if (j < open && heap[j + 1] < heap[j]) j++;
+                if (last <= heap[j]) break;
+                heap[k] = heap[j];
+                k = j;
+            }
+            heap[k] = last;
+            return min;
+        }
+    }
+
+    private final PackedBoard    codec;     // packing of the boards
+    private final int            size;      // board dimension N
+    private final int            threads;   // number of threads
+    private final Worker [ ]     workers;   // the threads, by owner number
+    private final SearchBudget   budget;    // budget of the caller, if any
+    private final AtomicInteger  incumbent; // moves of the best solution
+    private final AtomicLong     pending;   // busy threads + batches sent
+    private final AtomicLong     total;     // nodes expanded, roughly
+    private final boolean        solvable;
+    private volatile boolean     stop;      // give up the search?
+    private volatile Throwable   failure;   // why, if it was given up
+    private long                 expanded;  // nodes expanded
+
+    // find a solution to the initial board on as many threads as there are
+    // processors
+    public HdaSolver(final Board initial)
+    {
+        this(initial, Runtime.getRuntime().availableProcessors());
+    }
+
+    // find a solution to the initial board on the given number of threads
+    public HdaSolver(final Board initial, final int threads)
+    {
+        if (threads < 1)
+            throw new java.lang.IllegalArgumentException(
+                    "At least one thread is needed: " + threads);
+
+        size = initial.dimension();
+        codec = new PackedBoard(size);
+        final long state = codec.pack(initial);
+        this.threads = threads;
+        workers = new Worker[threads];
+        budget = SearchBudget.current();
+        incumbent = new AtomicInteger(Integer.MAX_VALUE);
+        pending = new AtomicLong(threads);
+        total = new AtomicLong();
+        solvable = initial.isSolvable();
+        if (!solvable) return;
+
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(i);
+        final long info = (long) codec.manhattan(state) << 8
+                | codec.blank(state);
+        workers[owner(state)].offer(state, 0, info);
+        search();
+    }
+
+    // run the workers on their threads until they are done
+    private void search()
+    {
+        final Thread [ ] running = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            running[i] = new Thread(workers[i], "hda-" + i);
+            running[i].start();
+        }
+        try {
+            for (final Thread thread : running)
+                thread.join();
+        }
+        catch (final InterruptedException e) {
+            stop = true;
+            Thread.currentThread().interrupt();
+            throw new java.lang.IllegalStateException("Search interrupted", e);
+        }
+
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        for (final Worker worker : workers)
+            expanded += worker.expanded;
+    }
+
+    // give up the search because of the exception
+    private void fail(final Throwable e)
+    {
+        if (failure == null) failure = e;
+        stop = true;
+    }
+
+    // number of the thread that owns the board
+    private int owner(final long state)
+    {
+        return (int) ((state * 0x9E3779B97F4A7C15L >>> 33) % threads);
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable()
+    {
+        return solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if no solution
+    public int moves()
+    {
+        if (!solvable) return -1;
+        return incumbent.get();
+    }
+
+    // sequence of boards in a shortest solution; null if no solution
+    public Iterable<Board> solution()
+    {
+        if (!solvable) return null;
+
+        final Stack<Board> stack = new Stack<Board>();
+        long state = codec.goal();
+        for (int k = moves(); k >= 0; k--) {
+            stack.push(codec.unpack(state));
+            state = workers[owner(state)].table.parent(state);
+        }
+        return stack;
+    }
+
+    // number of search nodes expanded to find the solution
+    public long expanded()
+    {
+        return expanded;
+    }
+
+    // solve a slider puzzle
+    public static void main(final String [ ] args)
+    {
+        // parse the options
+        int threads = Runtime.getRuntime().availableProcessors();
+        int a = 0;
+        for (; a < args.length && args[a].startsWith("-"); a++) {
+            if (args[a].equals("-threads"))
+                threads = Integer.parseInt(args[++a]);
+            else throw new IllegalArgumentException("Unknown option "
+                    + args[a]);
+        }
+
+        // create initial board from file
+        final In in = new In(args[a]);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        final Board initial = new Board(blocks);
+
+        // solve the puzzle
+        final HdaSolver solver = new HdaSolver(initial, threads);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (final Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/****************************************************************************
+ * Compilation: javac IdaSolver.java
+ * Execution: java IdaSolver file.txt
+ * Dependencies: Board.java PuzzleSolver.java PuzzleHeuristic.java
+ *               ManhattanHeuristic.java SearchBudget.java Queue.java In.java
+ *               StdOut.java
+ * 
+ * Description: A solver for the slider puzzle using IDA* (iterative
+ * deepening A*): a depth-first search that gives up on every path as soon
+ * as its number of moves plus the estimate of its board goes over a bound,
+ * repeated with the bound raised to the smallest such value that went over
+ * it, until the goal is reached. The estimate is given by a PuzzleHeuristic
+ * (the Manhattan distance by default); as long as it never overestimates,
+ * the first solution found is a shortest one.
+ * 
+ * The depth-first search works on a single mutable board, an array of
+ * blocks with the position of every block and the estimate: every move
+ * slides a block into the blank and updates the estimate by the change the
+ * heuristic gives for it, and is undone the same way on the way back, never
+ * going straight back to the previous board. Nothing is allocated per
+ * search node, and the memory used is that of the current path only,
+ * O(depth), however many nodes are expanded; boards are only built for
+ * solution().
+ * 
+ * As with Solver, unsolvable boards are ruled out up front by
+ * Board.isSolvable(), as the search would never end on them.
+ * 
+ ***************************************************************************/
+
+public class IdaSolver implements PuzzleSolver
+{
+
+    // the iterative deepening search of one board
+    private class Search
+    {
+        private final int [ ] tiles;   // the mutable board
+        private final int [ ] where;   // position of every block
+        private int           blank;   // position of the blank
+        private int           h;       // estimate of the board
+        private int           bound;   // bound of the current iteration
+        private int           next;    // smallest value over the bound
+        private int [ ]       path;    // blank position after every move
+        private int           length;  // number of moves of the solution
+
+        // start a search from the given board
+        public Search(final Board initial)
+        {
+            tiles = new int[cells];
+            where = new int[cells];
+            for (int i = 0; i < cells; i++) {
+                tiles[i] = initial.tile(i);
+                where[tiles[i]] = i;
+            }
+            blank = where[0];
+            h = heuristic.estimate(tiles, where);
+            bound = h;
+            path = new int[bound + 1];
+            length = -1;
+        }
+
+        // run iterations with ever larger bounds until the goal is reached,
+        // each bound being the least f over the previous one
+        public void iterate()
+        {
+            next = Integer.MAX_VALUE;
+            while (!search(0, -1)) {
+                bound = next;
+                next = Integer.MAX_VALUE;
+                if (path.length < bound + 1) path = new int[bound + 1];
+            }
+        }
+
+        // depth-first search from the current board, reached in g moves
+        // from the blank position previous
+        private boolean search(final int g, final int previous)
+        {
+            final int f = g + h;
+            if (f > bound) {
+                if (f < next) next = f;
+                return false;
+            }
+            if (h == 0 && isGoal()) {
+                length = g;
+                return true;
+            }
+            if (++expanded % SearchBudget.EVERY == 0)
+                SearchBudget.check(expanded);
+
+            // left, right, up and down
+            final int from = blank;
+            if (col[from] > 0 && from - 1 != previous
+                    && move(g, from, from - 1)) return true;
+            if (col[from] < size - 1 && from + 1 != previous
+                    && move(g, from, from + 1)) return true;
+            if (from >= size && from - size != previous
+                    && move(g, from, from - size)) return true;
+            if (from < cells - size && from + size != previous
+                    && move(g, from, from + size)) return true;
+            return false;
+        }
+
+        // slide the block at cell into the blank at from, search from
+        // there, and undo the move unless the goal was reached
+        private boolean move(final int g, final int from, final int cell)
+        {
+            slide(cell);
+            path[g] = cell;
+            if (search(g + 1, from)) return true;
+            slide(from);
+            return false;
+        }
+
+        // slide the block at cell into the blank
+        private void slide(final int cell)
+        {
+            final int t = tiles[cell];
+            h += heuristic.delta(tiles, where, t, cell, blank);
+            tiles[blank] = t;
+            tiles[cell] = 0;
+            where[t] = blank;
+            where[0] = cell;
+            blank = cell;
+        }
+
+        // is the board the goal? (a heuristic may be 0 elsewhere, when it
+        // leaves some blocks out)
+        private boolean isGoal()
+        {
+            for (int i = 0; i < cells - 1; i++)
+                if (tiles[i] != i + 1) return false;
+            return true;
+        }
+    }
+
+    private final int             size;      // board dimension N
+    private final int             cells;     // N^2
+    private final int [ ]         col;       // column of every position
+    private final Board           initial;   // the board to solve
+    private final PuzzleHeuristic heuristic; // estimate of every board
+    private final Search          search;    // search of the initial board
+    private final boolean         solvable;
+    private long                  expanded;  // nodes expanded
+
+    // find a solution to the initial board (using the IDA* algorithm with
+    // the Manhattan distance)
+    public IdaSolver(final Board initial)
+    {
+        this(initial, new ManhattanHeuristic(initial.dimension()));
+    }
+
+    // find a solution to the initial board (using the IDA* algorithm with
+    // the given heuristic, which must never overestimate)
+    public IdaSolver(final Board initial, final PuzzleHeuristic heuristic)
+    {
+        if (heuristic.dimension() != initial.dimension())
+            throw new java.lang.IllegalArgumentException("Not a "
+                    + heuristic.dimension() + "-by-" + heuristic.dimension()
+                    + " board");
+
+        this.initial = initial;
+        this.heuristic = heuristic;
+        size = initial.dimension();
+        cells = size * size;
+        col = new int[cells];
+        for (int i = 0; i < cells; i++)
+            col[i] = i % size;
+
+        search = new Search(initial);
+        solvable = initial.isSolvable();
+        if (solvable)
+            search.iterate();
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable()
+    {
+        return solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if no solution
+    public int moves()
+    {
+        if (!solvable) return -1;
+        return search.length;
+    }
+
+    // sequence of boards in a shortest solution; null if no solution
+    public Iterable<Board> solution()
+    {
+        if (!solvable) return null;
+
+        final int [ ] tiles = new int[cells];
+        int blank = 0;
+        for (int i = 0; i < cells; i++) {
+            tiles[i] = initial.tile(i);
+            if (tiles[i] == 0) blank = i;
+        }
+
+        final Queue<Board> queue = new Queue<Board>();
+        queue.enqueue(initial);
+        for (int k = 0; k < search.length; k++) {
+            final int cell = search.path[k];
+            tiles[blank] = tiles[cell];
+            tiles[cell] = 0;
+            blank = cell;
+
+            final int [ ][ ] blocks = new int[size][size];
+            for (int i = 0; i < cells; i++)
+                blocks[i / size][i % size] = tiles[i];
+            queue.enqueue(new Board(blocks));
+        }
+        return queue;
+    }
+
+    // number of search nodes expanded to find the solution
+    public long expanded()
+    {
+        return expanded;
+    }
+
+    // solve a slider puzzle
+    public static void main(final String [ ] args)
+    {
+        // create initial board from file
+        final In in = new In(args[0]);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        final Board initial = new Board(blocks);
+
+        // solve the puzzle
+        final IdaSolver solver = new IdaSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (final Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/****************************************************************************
+ * Compilation: javac LinearConflict.java
+ * Execution: not applicable
+ * Dependencies: PuzzleHeuristic.java ManhattanHeuristic.java
+ * 
+ * Description: The Manhattan distance plus linear conflicts as a
+ * PuzzleHeuristic. Two blocks are in a linear conflict when they are both
+ * in the row (or column) of their goal positions, but in the wrong order:
+ * one of them has to leave the line and come back, which takes 2 moves
+ * more than their Manhattan distances. In every line, the blocks that
+ * stay are the longest increasing sequence of goal positions, so the
+ * others, each of them 2 moves more, are the length of the line less that
+ * of the sequence; the estimate never overestimates, and is always at
+ * least the Manhattan distance, for a line or two more of work per move.
+ * 
+ * A move only changes the conflicts of the lines across it: sliding a
+ * block along its row takes it from one column to the next, and the order
+ * of the blocks in the row stays the same. The only column whose
+ * conflicts change is then that of the goal of the block, if it is one of
+ * the two, and the same goes for rows when the block moves up or down.
+ * 
+ ***************************************************************************/
+
+public class LinearConflict implements PuzzleHeuristic
+{
+
+    private final int                size;      // board dimension N
+    private final int                cells;     // N^2
+    private final ManhattanHeuristic manhattan; // Manhattan distance
+    private final int [ ]            goals;     // goal positions in a line
+    private final int [ ]            lengths;   // increasing sequences
+
+    // create the heuristic of the N-by-N boards
+    public LinearConflict(final int N)
+    {
+        size = N;
+        cells = N * N;
+        manhattan = new ManhattanHeuristic(N);
+        goals = new int[N];
+        lengths = new int[N];
+    }
+
+    // board dimension N
+    public int dimension()
+    {
+        return size;
+    }
+
+    // Manhattan distance plus 2 moves per block in a linear conflict
+    public int estimate(final int [ ] tiles, final int [ ] where)
+    {
+        int sum = manhattan.estimate(tiles, where);
+        for (int line = 0; line < size; line++)
+            sum += 2 * (rowConflicts(tiles, line) + colConflicts(tiles, line));
+        return sum;
+    }
+
+    // change of the estimate when block t slides from position from to to
+    public int delta(final int [ ] tiles, final int [ ] where, final int t,
+            final int from, final int to)
+    {
+        final int moved = manhattan.delta(tiles, where, t, from, to);
+        final int goal = t - 1;
+        final boolean across = from / size == to / size;
+        final int line = across ? goal % size : goal / size;
+        if (across && line != from % size && line != to % size
+                || !across && line != from / size && line != to / size)
+            return moved;
+
+        final int before = across ? colConflicts(tiles, line)
+                : rowConflicts(tiles, line);
+        tiles[to] = t;
+        tiles[from] = 0;
+        final int after = across ? colConflicts(tiles, line)
+                : rowConflicts(tiles, line);
+        tiles[from] = t;
+        tiles[to] = 0;
+        return moved + 2 * (after - before);
+    }
+
+    // number of blocks to take out of row r to end its conflicts
+    private int rowConflicts(final int [ ] tiles, final int r)
+    {
+        int n = 0;
+        for (int i = r * size; i < (r + 1) * size; i++) {
+            final int t = tiles[i];
+            if (t != 0 && (t - 1) / size == r) goals[n++] = (t - 1) % size;
+        }
+        return n - increasing(n);
+    }
+
+    // number of blocks to take out of column c to end its conflicts
+    private int colConflicts(final int [ ] tiles, final int c)
+    {
+        int n = 0;
+        for (int i = c; i < cells; i += size) {
+            final int t = tiles[i];
+            if (t != 0 && (t - 1) % size == c) goals[n++] = (t - 1) / size;
+        }
+        return n - increasing(n);
+    }
+
+    // length of the longest increasing sequence in the first n goals
+    private int increasing(final int n)
+    {
+        int longest = 0;
+        for (int i = 0; i < n; i++) {
+            lengths[i] = 1;
+            for (int j = 0; j < i; j++)
+                if (goals[j] < goals[i] && lengths[j] >= lengths[i])
+                    lengths[i] = lengths[j] + 1;
+            if (lengths[i] > longest) longest = lengths[i];
+        }
+        return longest;
+    }
+
+}
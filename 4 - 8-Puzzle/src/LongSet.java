@@ -0,0 +1,77 @@
+/****************************************************************************
+ * Compilation: javac LongSet.java
+ * Execution: not applicable
+ * Dependencies: none
+ * 
+ * Description: A set of longs, such as the hashes or packed forms of boards
+ * already seen by a search, kept in an open-addressing hash table (linear
+ * probing) of primitive longs, so it takes 16 to 32 bytes per element and
+ * no objects. The table is at most half full and doubles when it gets
+ * there. 0 marks an empty slot, so whether 0 itself is in the set is kept
+ * apart.
+ * 
+ ***************************************************************************/
+
+public class LongSet
+{
+
+    private long [ ] keys = new long[16]; // the table, 0 for an empty slot
+    private int      size;                // number of elements but 0
+    private boolean  zero;                // is 0 in the set?
+
+    // number of elements in the set
+    public int size()
+    {
+        return zero ? size + 1 : size;
+    }
+
+    // mix the bits of a key before reducing it to a table slot
+    private static int hash(final long key)
+    {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    // slot of the key, or the empty slot where it would go
+    private int slot(final long key)
+    {
+        final int mask = keys.length - 1;
+        int s = hash(key) & mask;
+        while (keys[s] != 0 && keys[s] != key)
+            s = s + 1 & mask;
+        return s;
+    }
+
+    // is the key in the set?
+    public boolean contains(final long key)
+    {
+        if (key == 0) return zero;
+        return keys[slot(key)] != 0;
+    }
+
+    // add the key to the set; return whether it was not in the set before
+    public boolean add(final long key)
+    {
+        if (key == 0) {
+            final boolean added = !zero;
+            zero = true;
+            return added;
+        }
+
+        final int s = slot(key);
+        if (keys[s] != 0) return false;
+        keys[s] = key;
+        if (++size > keys.length / 2) resize(2 * keys.length);
+        return true;
+    }
+
+    // move the keys to a table of the given capacity
+    private void resize(final int capacity)
+    {
+        final long [ ] old = keys;
+        keys = new long[capacity];
+        for (final long key : old)
+            if (key != 0) keys[slot(key)] = key;
+    }
+
+}
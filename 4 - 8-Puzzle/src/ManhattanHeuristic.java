@@ -0,0 +1,54 @@
+/****************************************************************************
+ * Compilation: javac ManhattanHeuristic.java
+ * Execution: not applicable
+ * Dependencies: PuzzleHeuristic.java
+ * 
+ * Description: The Manhattan distance as a PuzzleHeuristic: the sum over
+ * the blocks of their distance from their goal position, looked up in a
+ * table of the distance of every block at every position. A move changes
+ * the distance of the block moved only.
+ * 
+ ***************************************************************************/
+
+public class ManhattanHeuristic implements PuzzleHeuristic
+{
+
+    private final int     size;     // board dimension N
+    private final int     cells;    // N^2
+    private final int [ ] distance; // distance of block t at position i
+
+    // create the heuristic of the N-by-N boards
+    public ManhattanHeuristic(final int N)
+    {
+        size = N;
+        cells = N * N;
+        distance = new int[cells * cells];
+        for (int t = 1; t < cells; t++)
+            for (int i = 0; i < cells; i++)
+                distance[t * cells + i] = Math.abs((t - 1) / size - i / size)
+                        + Math.abs((t - 1) % size - i % size);
+    }
+
+    // board dimension N
+    public int dimension()
+    {
+        return size;
+    }
+
+    // sum of Manhattan distances between blocks and goal
+    public int estimate(final int [ ] tiles, final int [ ] where)
+    {
+        int sum = 0;
+        for (int i = 0; i < cells; i++)
+            sum += distance[tiles[i] * cells + i];
+        return sum;
+    }
+
+    // change of the distance of block t moved from position from to to
+    public int delta(final int [ ] tiles, final int [ ] where, final int t,
+            final int from, final int to)
+    {
+        return distance[t * cells + to] - distance[t * cells + from];
+    }
+
+}
@@ -0,0 +1,147 @@
+/****************************************************************************
+ * Compilation: javac PackedBoard.java
+ * Execution: not applicable
+ * Dependencies: Board.java
+ * 
+ * Description: A packed encoding of the boards of one dimension N, for N up
+ * to 4 (the 8-puzzle and the 15-puzzle), where a whole board is a single
+ * long: the block at position i (in row-major order) takes the 4 bits at
+ * i * 4, and the blank is a 0. Boards are plain values, so they need no
+ * allocation, and equal boards are equal longs.
+ * 
+ * A move slides the block next to the blank into it, which is a couple of
+ * shifts and adds on the long, and the change of the Manhattan distance it
+ * makes is looked up in a table of the distance of every block from its
+ * goal position at every position, built once for the dimension.
+ * 
+ * The goal board is the usual one (blocks 1 to N^2 - 1 in order, then the
+ * blank), so the boards packed must hold exactly the blocks 0 to N^2 - 1.
+ * 
+ ***************************************************************************/
+
+public class PackedBoard
+{
+
+    private static final int  BITS = 4;   // bits per block
+    private static final long MASK = 0xF; // mask of one block
+
+    private final int    size;     // board dimension N
+    private final int    cells;    // N^2
+    private final long   goal;     // the goal board
+    private final int[ ] distance; // distance of block t at position i
+
+    // create the encoding of the N-by-N boards
+    public PackedBoard(final int N)
+    {
+        if (N < 2 || N > 4)
+            throw new java.lang.IllegalArgumentException(
+                    "Only 2-by-2 to 4-by-4 boards can be packed: " + N);
+
+        size = N;
+        cells = N * N;
+
+        long g = 0;
+        for (int i = 0; i < cells - 1; i++)
+            g |= (long) (i + 1) << BITS * i;
+        goal = g;
+
+        distance = new int[cells * cells];
+        for (int t = 1; t < cells; t++)
+            for (int i = 0; i < cells; i++)
+                distance[t * cells + i] = Math.abs((t - 1) / size - i / size)
+                        + Math.abs((t - 1) % size - i % size);
+    }
+
+    // board dimension N
+    public int dimension()
+    {
+        return size;
+    }
+
+    // the goal board
+    public long goal()
+    {
+        return goal;
+    }
+
+    // the packed form of the board
+    public long pack(final Board board)
+    {
+        if (board.dimension() != size)
+            throw new java.lang.IllegalArgumentException("Not a " + size
+                    + "-by-" + size + " board");
+
+        long state = 0;
+        int seen = 0;
+        for (int i = 0; i < cells; i++) {
+            final int t = board.tile(i);
+            if (t < 0 || t >= cells || (seen & 1 << t) != 0)
+                throw new java.lang.IllegalArgumentException(
+                        "Blocks are not 0 to " + (cells - 1));
+            seen |= 1 << t;
+            state |= (long) t << BITS * i;
+        }
+        return state;
+    }
+
+    // the board of the packed form
+    public Board unpack(final long state)
+    {
+        final int [ ][ ] blocks = new int[size][size];
+        for (int i = 0; i < cells; i++)
+            blocks[i / size][i % size] = tile(state, i);
+        return new Board(blocks);
+    }
+
+    // block at position i (0 for the blank)
+    public static int tile(final long state, final int i)
+    {
+        return (int) (state >>> BITS * i & MASK);
+    }
+
+    // position of the blank
+    public int blank(final long state)
+    {
+        for (int i = 0; i < cells; i++)
+            if (tile(state, i) == 0) return i;
+        throw new java.lang.IllegalArgumentException("No blank");
+    }
+
+    // number of blocks out of place
+    public int hamming(final long state)
+    {
+        int count = 0;
+        for (int i = 0; i < cells; i++) {
+            final int t = tile(state, i);
+            if (t != 0 && t != i + 1) count++;
+        }
+        return count;
+    }
+
+    // sum of Manhattan distances between blocks and goal
+    public int manhattan(final long state)
+    {
+        int sum = 0;
+        for (int i = 0; i < cells; i++)
+            sum += distance[tile(state, i) * cells + i];
+        return sum;
+    }
+
+    // the board after sliding the block at position cell into the blank at
+    // position blank
+    public static long slide(final long state, final int blank,
+            final int cell)
+    {
+        final long t = state >>> BITS * cell & MASK;
+        return state + (t << BITS * blank) - (t << BITS * cell);
+    }
+
+    // change of the Manhattan distance made by that same move
+    public int slideDistance(final long state, final int blank,
+            final int cell)
+    {
+        final int t = tile(state, cell);
+        return distance[t * cells + blank] - distance[t * cells + cell];
+    }
+
+}
@@ -0,0 +1,223 @@
+/****************************************************************************
+ * Compilation: javac PackedSolver.java
+ * Execution: java PackedSolver file.txt
+ * Dependencies: Board.java PackedBoard.java PuzzleSolver.java Stack.java
+ *               SearchBudget.java In.java StdOut.java
+ * 
+ * Description: The same A* search as Solver (Manhattan priority function,
+ * unsolvable boards ruled out up front by Board.isSolvable(), and no going
+ * straight back to the previous board), for 2-by-2 to 4-by-4 boards,
+ * but with no objects per search node. Boards are packed into a long each
+ * (see PackedBoard), and the search nodes live in parallel primitive arrays:
+ * the board, the index of the previous node, the number of moves made and
+ * the position of the blank. The priority queue is a binary heap of longs,
+ * each holding the priority of a node in its high 32 bits and its index
+ * (counted down from Integer.MAX_VALUE) in the low 32 bits, so comparisons
+ * are plain comparisons of longs, and ties go to the newest node, which
+ * tends to be the deepest one and the closest to the goal. The Manhattan
+ * distance of a neighbor is that of its board plus the change made by the
+ * move. Boards are only turned back into Board objects for solution().
+ * 
+ ***************************************************************************/
+
+import java.util.Arrays;
+
+
+public class PackedSolver implements PuzzleSolver
+{
+
+    private static final int CAPACITY = 1 << 10; // initial number of nodes
+
+    // the nodes and priority queue of the search of one board
+    private class Search
+    {
+        private long[ ]  states  = new long[CAPACITY];  // board of a node
+        private int[ ]   parents = new int[CAPACITY];   // previous node
+        private short[ ] moves   = new short[CAPACITY]; // moves made
+        private byte[ ]  blanks  = new byte[CAPACITY];  // position of blank
+        private int      nodes;                         // number of nodes
+
+        private long[ ]  heap    = new long[CAPACITY];  // priority | node
+        private int      open;                          // nodes in the heap
+
+        private int      goal    = -1;                  // goal node, if any
+
+        // start a search from the given board
+        public Search(final long initial)
+        {
+            add(initial, -1, 0, codec.blank(initial),
+                    codec.manhattan(initial));
+        }
+
+        // add a node, and insert it in the priority queue
+        private void add(final long state, final int parent, final int g,
+                final int blank, final int h)
+        {
+            if (nodes == states.length) {
+                states = Arrays.copyOf(states, 2 * nodes);
+                parents = Arrays.copyOf(parents, 2 * nodes);
+                moves = Arrays.copyOf(moves, 2 * nodes);
+                blanks = Arrays.copyOf(blanks, 2 * nodes);
+            }
+            states[nodes] = state;
+            parents[nodes] = parent;
+            moves[nodes] = (short) g;
+            blanks[nodes] = (byte) blank;
+            insert((long) (g + h) << 32 | Integer.MAX_VALUE - nodes);
+            nodes++;
+        }
+
+        // insert a key in the heap
+        private void insert(final long key)
+        {
+            if (open + 1 == heap.length)
+                heap = Arrays.copyOf(heap, 2 * heap.length);
+
+            int k = ++open;
+            while (k > 1 && heap[k / 2] > key) {
+                heap[k] = heap[k / 2];
+                k /= 2;
+            }
+            heap[k] = key;
+        }
+
+        // remove and return the smallest key of the heap
+        private long delMin()
+        {
+            final long min = heap[1];
+            final long last = heap[open--];
+
+            int k = 1;
+            while (2 * k <= open) {
+                int j = 2 * k;
+                if (j < open && heap[j + 1] < heap[j]) j++;
+                if (last <= heap[j]) break;
+                heap[k] = heap[j];
+                k = j;
+            }
+            heap[k] = last;
+            return min;
+        }
+
+        // expand the node of minimum priority, unless it is the goal;
+        // return whether it is
+        public boolean step()
+        {
+            final long min = delMin();
+            final int node = Integer.MAX_VALUE - (int) min;
+            final long state = states[node];
+            if (state == codec.goal()) {
+                goal = node;
+                return true;
+            }
+            if (++expanded % SearchBudget.EVERY == 0)
+                SearchBudget.check(expanded);
+
+            final int g = moves[node];
+            final int h = (int) (min >>> 32) - g;
+            final int blank = blanks[node];
+            final long previous = node == 0 ? -1 : states[parents[node]];
+
+            // left, right, up and down
+            if (blank % size > 0) neighbor(node, state, previous, g, h,
+                    blank, blank - 1);
+            if (blank % size < size - 1) neighbor(node, state, previous, g, h,
+                    blank, blank + 1);
+            if (blank >= size) neighbor(node, state, previous, g, h,
+                    blank, blank - size);
+            if (blank < size * (size - 1)) neighbor(node, state, previous, g,
+                    h, blank, blank + size);
+            return false;
+        }
+
+        // add the neighbor where the block at cell slides into the blank,
+        // unless it is the previous board
+        private void neighbor(final int node, final long state,
+                final long previous, final int g, final int h,
+                final int blank, final int cell)
+        {
+            final long next = PackedBoard.slide(state, blank, cell);
+            if (next == previous) return;
+            add(next, node, g + 1, cell,
+                    h + codec.slideDistance(state, blank, cell));
+        }
+    }
+
+    private final PackedBoard codec;     // packing of the boards
+    private final int         size;      // board dimension N
+    private final Search      search;    // search of the initial board
+    private final boolean     solvable;
+    private long              expanded;  // nodes expanded
+
+    // find a solution to the initial board (using the A* algorithm)
+    public PackedSolver(final Board initial)
+    {
+        size = initial.dimension();
+        codec = new PackedBoard(size);
+        final long state = codec.pack(initial);
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            search = null;
+            return;
+        }
+
+        search = new Search(state);
+        while (!search.step()) continue;
+    }
+
+    // is the initial board solvable?
+    public boolean isSolvable()
+    {
+        return solvable;
+    }
+
+    // min number of moves to solve initial board; -1 if no solution
+    public int moves()
+    {
+        if (!solvable) return -1;
+        return search.moves[search.goal];
+    }
+
+    // sequence of boards in a shortest solution; null if no solution
+    public Iterable<Board> solution()
+    {
+        if (!solvable) return null;
+
+        final Stack<Board> stack = new Stack<Board>();
+        for (int node = search.goal; node != -1; node = search.parents[node])
+            stack.push(codec.unpack(search.states[node]));
+
+        return stack;
+    }
+
+    // number of search nodes expanded to find the solution
+    public long expanded()
+    {
+        return expanded;
+    }
+
+    // solve a slider puzzle
+    public static void main(final String [ ] args)
+    {
+        // create initial board from file
+        final In in = new In(args[0]);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        final Board initial = new Board(blocks);
+
+        // solve the puzzle
+        final PackedSolver solver = new PackedSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (final Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/****************************************************************************
+ * Compilation: javac PatternDatabase.java
+ * Execution: java PatternDatabase N file [groups]
+ * Dependencies: PuzzleHeuristic.java StdOut.java
+ * 
+ * Description: Additive disjoint pattern databases as a PuzzleHeuristic,
+ * for boards up to 4-by-4. The blocks are split into disjoint groups (for
+ * the 15-puzzle, by default, groups of 6, 6 and 3 blocks), and for every
+ * group a table holds, for every placement of its blocks, the least number
+ * of moves of those blocks needed to take them to their goal positions,
+ * moves of the other blocks being free. As every move is one of a single
+ * block, so counted in at most one group, the sum of the tables of the
+ * groups never overestimates, and it takes into account how the blocks of
+ * a group get in each other's way, which the Manhattan distance does not.
+ * 
+ * A placement is looked up by the positions of the blocks of the group, 4
+ * bits each, so a table of k blocks takes 16^k bytes, one per cost (16 MB
+ * for 6 blocks); a move changes the key of one group by one position.
+ * 
+ * The tables are built by a breadth-first search back from the goal over
+ * the placements of the group and of the blank, where moving the blank
+ * over a block of the group costs 1 and over any other block costs 0: the
+ * search goes through the placements by increasing cost, those reached at
+ * no cost being added to the current level and the others to the next,
+ * and the cost of a placement of the group is the first level it is
+ * reached at, whatever the position of the blank.
+ * 
+ * That takes a while (tens of seconds per group of 6, and a few hundred
+ * MB), so the tables are built once and saved to a file (the dimension,
+ * the groups, then the tables), which is mapped into memory rather than
+ * read when loaded, so that loading takes no time and several processes
+ * share the same pages. forDimension() loads the file pdbNxN.bin from the
+ * directory given by the system property pdb.dir (the working directory
+ * by default), if there is one.
+ * 
+ * % java -Xmx2g PatternDatabase 4 pdb4x4.bin
+ * group 1 5 6 9 10 13: 5765760 placements, max ... moves, 16777216 bytes
+ * ...
+ * 4-by-4 built in ... ms, saved to pdb4x4.bin (...)
+ * 
+ ***************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class PatternDatabase implements PuzzleHeuristic
+{
+
+    private static final int  BITS    = 4;   // bits per position in a key
+    private static final int  MAX     = 6;   // max number of blocks per group
+    private static final byte UNKNOWN = -1;  // cost not known yet
+
+    private static PatternDatabase [ ] loaded = new PatternDatabase[5];
+
+    private final int            size;   // board dimension N
+    private final int            cells;  // N^2
+    private final int [ ][ ]     groups; // blocks of every group
+    private final int [ ]        group;  // group of every block, or -1
+    private final int [ ]        shift;  // shift of every block in its key
+    private final ByteBuffer [ ] tables; // cost of every group by key
+
+    // create the databases of the groups from their tables
+    private PatternDatabase(final int N, final int [ ][ ] groups,
+            final ByteBuffer [ ] tables)
+    {
+        size = N;
+        cells = N * N;
+        this.groups = groups;
+        this.tables = tables;
+        group = new int[cells];
+        shift = new int[cells];
+        java.util.Arrays.fill(group, -1);
+        for (int g = 0; g < groups.length; g++)
+            for (int j = 0; j < groups[g].length; j++) {
+                group[groups[g][j]] = g;
+                shift[groups[g][j]] = BITS * j;
+            }
+    }
+
+    // board dimension N
+    public int dimension()
+    {
+        return size;
+    }
+
+    // the default groups of the N-by-N boards
+    public static int [ ][ ] defaultGroups(final int N)
+    {
+        switch (N) {
+        case 2:
+            return new int[ ][ ] { { 1, 2, 3 } };
+        case 3:
+            return new int[ ][ ] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+        case 4:
+            return new int[ ][ ] { { 1, 5, 6, 9, 10, 13 },
+                    { 7, 8, 11, 12, 14, 15 }, { 2, 3, 4 } };
+        default:
+            throw new java.lang.IllegalArgumentException(
+                    "Only 2-by-2 to 4-by-4 boards have pattern databases: "
+                            + N);
+        }
+    }
+
+    // sum of the costs of the groups
+    public int estimate(final int [ ] tiles, final int [ ] where)
+    {
+        int sum = 0;
+        for (int g = 0; g < groups.length; g++)
+            sum += tables[g].get(key(g, where)) & 0xFF;
+        return sum;
+    }
+
+    // change of the cost of the group of block t moved from from to to
+    public int delta(final int [ ] tiles, final int [ ] where, final int t,
+            final int from, final int to)
+    {
+        final int g = group[t];
+        if (g < 0) return 0;
+        final int key = key(g, where);
+        final int moved = key + (to - from << shift[t]);
+        return (tables[g].get(moved) & 0xFF) - (tables[g].get(key) & 0xFF);
+    }
+
+    // key of the placement of group g
+    private int key(final int g, final int [ ] where)
+    {
+        final int [ ] blocks = groups[g];
+        int key = 0;
+        for (int j = 0; j < blocks.length; j++)
+            key |= where[blocks[j]] << BITS * j;
+        return key;
+    }
+
+    // build the databases of the given groups of blocks of the N-by-N boards
+    public static PatternDatabase generate(final int N,
+            final int [ ][ ] groups)
+    {
+        if (N < 2 || N > 4)
+            throw new java.lang.IllegalArgumentException(
+                    "Only 2-by-2 to 4-by-4 boards have pattern databases: "
+                            + N);
+        final boolean [ ] seen = new boolean[N * N];
+        for (final int [ ] blocks : groups) {
+            if (blocks.length < 1 || blocks.length > MAX)
+                throw new java.lang.IllegalArgumentException(
+                        "Groups take 1 to " + MAX + " blocks");
+            for (final int t : blocks) {
+                if (t < 1 || t >= N * N || seen[t])
+                    throw new java.lang.IllegalArgumentException(
+                            "Groups must be disjoint sets of blocks 1 to "
+                                    + (N * N - 1));
+                seen[t] = true;
+            }
+        }
+
+        final ByteBuffer [ ] tables = new ByteBuffer[groups.length];
+        for (int g = 0; g < groups.length; g++)
+            tables[g] = ByteBuffer.wrap(search(N, groups[g]));
+        return new PatternDatabase(N, groups.clone(), tables);
+    }
+
+    // the table of the group of blocks, by a 0-1 breadth-first search from
+    // the goal over the placements of the blocks (4 bits each) and of the
+    // blank (the 4 bits after them)
+    private static byte [ ] search(final int N, final int [ ] blocks)
+    {
+        final int cells = N * N;
+        final int k = blocks.length;
+        final int blankShift = BITS * k;
+        final int keyMask = (1 << blankShift) - 1;
+
+        final byte [ ] table = new byte[1 << blankShift];
+        java.util.Arrays.fill(table, UNKNOWN);
+        final long [ ] visited = new long[1 << blankShift + BITS - 6];
+        final int [ ] occupant = new int[cells];
+        java.util.Arrays.fill(occupant, -1);
+
+        int goal = (cells - 1) << blankShift;
+        for (int j = 0; j < k; j++)
+            goal |= blocks[j] - 1 << BITS * j;
+
+        IntList current = new IntList();
+        IntList next = new IntList();
+        visit(visited, goal);
+        current.add(goal);
+        for (int level = 0; current.size > 0; level++) {
+            for (int head = 0; head < current.size; head++) {
+                final int state = current.items[head];
+                final int key = state & keyMask;
+                if (table[key] == UNKNOWN) table[key] = (byte) level;
+
+                final int blank = state >>> blankShift;
+                for (int j = 0; j < k; j++)
+                    occupant[key >>> BITS * j & 0xF] = j;
+                for (int m = 0; m < 4; m++) {
+                    final int cell = neighbor(N, blank, m);
+                    if (cell < 0) continue;
+                    final int j = occupant[cell];
+                    if (j < 0) {
+                        final int to = key | cell << blankShift;
+                        if (visit(visited, to)) current.add(to);
+                    }
+                    else {
+                        final int to = key + (blank - cell << BITS * j)
+                                | cell << blankShift;
+                        if (!visited(visited, to)) next.add(to);
+                    }
+                }
+                for (int j = 0; j < k; j++)
+                    occupant[key >>> BITS * j & 0xF] = -1;
+            }
+
+            final IntList done = current;
+            current = next;
+            next = done;
+            next.size = 0;
+            int kept = 0;
+            for (int i = 0; i < current.size; i++)
+                if (visit(visited, current.items[i]))
+                    current.items[kept++] = current.items[i];
+            current.size = kept;
+        }
+        return table;
+    }
+
+    // position next to the blank in direction m (left, right, up, down),
+    // or -1 if off the board
+    private static int neighbor(final int N, final int blank, final int m)
+    {
+        switch (m) {
+        case 0:  return blank % N > 0 ? blank - 1 : -1;
+        case 1:  return blank % N < N - 1 ? blank + 1 : -1;
+        case 2:  return blank >= N ? blank - N : -1;
+        default: return blank < N * N - N ? blank + N : -1;
+        }
+    }
+
+    // has the state been visited?
+    private static boolean visited(final long [ ] visited, final int state)
+    {
+        return (visited[state >>> 6] & 1L << state) != 0;
+    }
+
+    // mark the state as visited; return whether it was not before
+    private static boolean visit(final long [ ] visited, final int state)
+    {
+        final long bit = 1L << state;
+        if ((visited[state >>> 6] & bit) != 0) return false;
+        visited[state >>> 6] |= bit;
+        return true;
+    }
+
+    // a growing list of ints
+    private static final class IntList
+    {
+        private int [ ] items = new int[1024];
+        private int     size;
+
+        // add the item at the end of the list
+        public void add(final int item)
+        {
+            if (size == items.length)
+                items = java.util.Arrays.copyOf(items, 2 * size);
+            items[size++] = item;
+        }
+    }
+
+    // save the databases to the file
+    public void save(final File file) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(size);
+            out.writeInt(groups.length);
+            for (final int [ ] blocks : groups) {
+                out.writeInt(blocks.length);
+                for (final int t : blocks)
+                    out.writeInt(t);
+            }
+            for (final ByteBuffer table : tables)
+                for (int i = 0; i < table.capacity(); i++)
+                    out.writeByte(table.get(i));
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    // load the databases saved to the file, mapping their tables into memory
+    public static PatternDatabase load(final File file) throws IOException
+    {
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            final ByteBuffer buffer = in.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY, 0, in.length());
+            final int N = buffer.getInt();
+            final int [ ][ ] groups = new int[buffer.getInt()][ ];
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = new int[buffer.getInt()];
+                for (int j = 0; j < groups[g].length; j++)
+                    groups[g][j] = buffer.getInt();
+            }
+
+            final ByteBuffer [ ] tables = new ByteBuffer[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                final int length = 1 << BITS * groups[g].length;
+                buffer.limit(buffer.position() + length);
+                tables[g] = buffer.slice();
+                buffer.position(buffer.limit());
+                buffer.limit(buffer.capacity());
+            }
+            return new PatternDatabase(N, groups, tables);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // the databases of the N-by-N boards in the file pdbNxN.bin of the
+    // directory pdb.dir, loaded once; null if there is no such file
+    public static synchronized PatternDatabase forDimension(final int N)
+    {
+        if (N < 2 || N > 4) return null;
+        if (loaded[N] == null) {
+            final File file = new File(System.getProperty("pdb.dir", "."),
+                    "pdb" + N + "x" + N + ".bin");
+            if (!file.exists()) return null;
+            try {
+                loaded[N] = load(file);
+            }
+            catch (final IOException e) {
+                throw new java.lang.IllegalStateException(
+                        "Cannot load " + file, e);
+            }
+        }
+        return loaded[N];
+    }
+
+    // parse groups such as 1,5,6,9,10,13/7,8,11,12,14,15/2,3,4
+    private static int [ ][ ] parseGroups(final String text)
+    {
+        final String [ ] parts = text.split("/");
+        final int [ ][ ] groups = new int[parts.length][ ];
+        for (int g = 0; g < parts.length; g++) {
+            final String [ ] blocks = parts[g].split(",");
+            groups[g] = new int[blocks.length];
+            for (int j = 0; j < blocks.length; j++)
+                groups[g][j] = Integer.parseInt(blocks[j].trim());
+        }
+        return groups;
+    }
+
+    // build the databases of the N-by-N boards and save them to a file
+    public static void main(final String [ ] args) throws IOException
+    {
+        final int N = Integer.parseInt(args[0]);
+        final File file = new File(args[1]);
+        final int [ ][ ] groups = args.length > 2 ? parseGroups(args[2])
+                : defaultGroups(N);
+
+        final long start = System.nanoTime();
+        final PatternDatabase database = generate(N, groups);
+        final long built = System.nanoTime();
+        database.save(file);
+
+        for (int g = 0; g < groups.length; g++) {
+            final ByteBuffer table = database.tables[g];
+            int placements = 0;
+            int max = 0;
+            for (int i = 0; i < table.capacity(); i++) {
+                final byte cost = table.get(i);
+                if (cost == UNKNOWN) continue;
+                placements++;
+                max = Math.max(max, cost);
+            }
+            StdOut.print("group");
+            for (final int t : groups[g])
+                StdOut.print(" " + t);
+            StdOut.println(": " + placements + " placements, max " + max
+                    + " moves, " + table.capacity() + " bytes");
+        }
+        StdOut.printf("%d-by-%d built in %d ms, saved to %s (%d bytes)%n", N,
+                N, (built - start) / 1000000, file, file.length());
+    }
+
+}
@@ -0,0 +1,190 @@
+/****************************************************************************
+ * Compilation: javac PuzzleBatch.java
+ * Execution: not applicable (see PuzzleChecker -threads)
+ * Dependencies: Board.java PuzzleSolver.java PuzzleEngine.java
+ *               SearchBudget.java In.java
+ * 
+ * Description: Solves a batch of boards, one per file, on a pool of
+ * threads, with one engine (see PuzzleEngine). Every board is solved
+ * within an optional budget of time and of nodes expanded (the cap on the
+ * memory it may take; see SearchBudget), and the boards over budget are
+ * reported as such instead of holding their thread. The heap is shared by
+ * all the threads, so running out of it is no fault of the board being
+ * solved: an OutOfMemoryError stops the whole batch. A line "filename:
+ * moves" is printed for every board as soon as it is solved, or, if the
+ * output is ordered, as soon as it and all the boards before it are, so
+ * that the output is the same as that of solving them one by one. Once
+ * all are done, a summary goes to the error stream: the throughput, in
+ * boards per second of the whole batch, and the percentiles of the
+ * latency of the boards, the time from reading one to having solved it.
+ * 
+ ***************************************************************************/
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PuzzleBatch
+{
+
+    // the outcome of one board
+    private static final class Result
+    {
+        private final int     index;  // position of the file in the batch
+        private final String  line;   // line to print for the board
+        private final long    nanos;  // latency
+        private final boolean solved; // was it solved within budget?
+
+        private Result(final int index, final String line, final long nanos,
+                final boolean solved)
+        {
+            this.index = index;
+            this.line = line;
+            this.nanos = nanos;
+            this.solved = solved;
+        }
+    }
+
+    private final PuzzleEngine engine;  // the engine to solve with
+    private final int          threads; // number of threads
+    private final long         millis;  // max time per board, 0 for none
+    private final long         nodes;   // max nodes per board, 0 for none
+    private final boolean      ordered; // print in the order of the files?
+
+    // a batch solver with the given engine, number of threads, budget per
+    // board (0 for no cap) and order of the output
+    public PuzzleBatch(final PuzzleEngine engine, final int threads,
+            final long millis, final long nodes, final boolean ordered)
+    {
+        if (threads < 1)
+            throw new java.lang.IllegalArgumentException(
+                    "At least one thread is needed: " + threads);
+
+        this.engine = engine;
+        this.threads = threads;
+        this.millis = millis;
+        this.nodes = nodes;
+        this.ordered = ordered;
+    }
+
+    // read the board in the given file
+    private static Board read(final String filename)
+    {
+        final In in = new In(filename);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        return new Board(blocks);
+    }
+
+    // read and solve the board of the file within budget
+    private Result solve(final int index, final String filename)
+    {
+        final long start = System.nanoTime();
+        String outcome;
+        boolean solved = false;
+        SearchBudget.set(millis, nodes);
+        try {
+            final PuzzleSolver solver = engine.solve(read(filename));
+            outcome = Integer.toString(solver.moves());
+            solved = true;
+        }
+        catch (final SearchBudget.Exceeded e) {
+            outcome = e.getMessage();
+        }
+        catch (final RuntimeException e) {
+            outcome = "error " + e.getMessage();
+        }
+        finally {
+            SearchBudget.clear();
+        }
+        return new Result(index, filename + ": " + outcome,
+                System.nanoTime() - start, solved);
+    }
+
+    // solve the boards of the files, printing the line of every board to out
+    // and the summary to err
+    public void run(final String [ ] filenames, final PrintStream out,
+            final PrintStream err)
+    {
+        final long start = System.nanoTime();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final CompletionService<Result> done =
+                new ExecutorCompletionService<Result>(pool);
+        for (int i = 0; i < filenames.length; i++) {
+            final int index = i;
+            done.submit(new Callable<Result>() {
+                public Result call()
+                {
+                    return solve(index, filenames[index]);
+                }
+            });
+        }
+
+        final Result [ ] results = new Result[filenames.length];
+        int next = 0; // next result to print, if ordered
+        try {
+            for (int i = 0; i < filenames.length; i++) {
+                final Result result = done.take().get();
+                results[result.index] = result;
+                if (!ordered) out.println(result.line);
+                else
+                    for (; next < results.length && results[next] != null;
+                            next++)
+                        out.println(results[next].line);
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new java.lang.IllegalStateException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        summarize(results, elapsed, err);
+    }
+
+    // print the throughput and the latency percentiles of the batch
+    private void summarize(final Result [ ] results, final long elapsed,
+            final PrintStream err)
+    {
+        final long [ ] latencies = new long[results.length];
+        int unsolved = 0;
+        for (int i = 0; i < results.length; i++) {
+            latencies[i] = results[i].nanos;
+            if (!results[i].solved) unsolved++;
+        }
+        Arrays.sort(latencies);
+
+        err.printf("%d boards (%d unsolved) in %.2f s on %d threads:"
+                + " %.1f boards/s%n", results.length, unsolved, elapsed / 1e9,
+                threads, results.length / (elapsed / 1e9));
+        err.printf("latency: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms,"
+                + " max %.1f ms%n", percentile(latencies, 50) / 1e6,
+                percentile(latencies, 90) / 1e6,
+                percentile(latencies, 99) / 1e6,
+                percentile(latencies, 100) / 1e6);
+    }
+
+    // the p-th percentile of the sorted values (nearest rank)
+    private static long percentile(final long [ ] sorted, final int p)
+    {
+        if (sorted.length == 0) return 0;
+        final int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+}
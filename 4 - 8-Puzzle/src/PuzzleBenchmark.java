@@ -0,0 +1,106 @@
+/****************************************************************************
+ * Compilation: javac PuzzleBenchmark.java
+ * Execution: java PuzzleBenchmark [-runs R] [-engines e1,e2,...] file1.txt ...
+ * Dependencies: Board.java PuzzleSolver.java PuzzleEngine.java In.java
+ *               StdOut.java
+ * 
+ * Description: Solves the board of every file given on the command line
+ * with each of the puzzle engines that can take it (all of them, or those
+ * named in a comma-separated list; see PuzzleEngine), and reports the
+ * number of moves, then for every engine the time taken, the number of
+ * search nodes expanded, the expansion rate, in thousands of nodes per
+ * second, and the memory held by the solver once done, measured as the
+ * growth of the heap in use after a full garbage collection. The number of
+ * moves found by every engine is cross-checked against the first one. Each
+ * engine solves a board R times (1 by default) and the best time is
+ * reported; on a single run the first boards also pay for JIT compilation,
+ * so put a few easy boards first when measuring rates.
+ * 
+ * % java PuzzleBenchmark puzzle4x4-hard1.txt
+ * puzzle4x4-hard1.txt        38 moves  astar ... ms ... nodes ... k/s ... MB
+ * 
+ ***************************************************************************/
+
+public class PuzzleBenchmark
+{
+
+    // read the board in the given file
+    private static Board read(final String filename)
+    {
+        final In in = new In(filename);
+        final int N = in.readInt();
+        final int [ ][ ] blocks = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                blocks[i][j] = in.readInt();
+        return new Board(blocks);
+    }
+
+    // heap in use after a full garbage collection, in bytes
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 2; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String [ ] args)
+    {
+        int runs = 1;
+        PuzzleEngine [ ] engines = PuzzleEngine.all();
+
+        // parse the options
+        int a = 0;
+        for (; a < args.length && args[a].startsWith("-"); a++) {
+            if (args[a].equals("-runs")) runs = Integer.parseInt(args[++a]);
+            else if (args[a].equals("-engines")) {
+                final String [ ] names = args[++a].split(",");
+                engines = new PuzzleEngine[names.length];
+                for (int e = 0; e < names.length; e++)
+                    engines[e] = PuzzleEngine.named(names[e]);
+            }
+            else throw new IllegalArgumentException("Unknown option " + args[a]);
+        }
+
+        boolean agree = true;
+        for (; a < args.length; a++) {
+            final Board initial = read(args[a]);
+
+            final StringBuilder line = new StringBuilder();
+            int expected = Integer.MIN_VALUE;
+            for (final PuzzleEngine engine : engines) {
+                if (!engine.supports(initial.dimension())) continue;
+
+                PuzzleSolver solver = null;
+                long best = Long.MAX_VALUE;
+                long memory = 0;
+                for (int r = 0; r < runs; r++) {
+                    solver = null;
+                    final long before = usedMemory();
+                    final long start = System.nanoTime();
+                    solver = engine.solve(initial);
+                    best = Math.min(best, System.nanoTime() - start);
+                    memory = usedMemory() - before;
+                }
+
+                if (expected == Integer.MIN_VALUE) {
+                    expected = solver.moves();
+                    line.append(String.format("%-24s %4d moves",
+                            new java.io.File(args[a]).getName(), expected));
+                }
+                line.append(String.format(
+                        "  %s %9.1f ms %10d nodes %8.0f k/s %7.1f MB",
+                        engine.name(), best / 1e6, solver.expanded(),
+                        solver.expanded() / (best / 1e6), memory / 1e6));
+                if (solver.moves() != expected) {
+                    line.append(" (MISMATCH)");
+                    agree = false;
+                }
+            }
+            StdOut.println(line);
+        }
+
+        if (!agree) System.exit(1);
+    }
+
+}
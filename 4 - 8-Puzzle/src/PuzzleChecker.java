@@ -3,12 +3,31 @@
  * Date: 07/09/2012
  * 
  * Compilation: javac PuzzleChecker.java
- * Execution: java PuzzleChecker filename1.txt filename2.txt ...
- * Dependencies: Board.java Solver.java In.java
+ * Execution: java PuzzleChecker [-engine name] [-threads T] [-ordered]
+ *            [-timeout ms] [-nodes n] [-cache file] filename1.txt ...
+ * Dependencies: Board.java PuzzleSolver.java PuzzleEngine.java In.java
+ *               PuzzleBatch.java SolutionCache.java
  * 
  * Description: This program creates an initial board from each filename
  * specified on the command line and finds the minimum number of moves to
- * reach the goal state.
+ * reach the goal state, with the given engine (see PuzzleEngine; Solver's
+ * A* by default).
+ * 
+ * Given any of the batch options, the boards are solved by PuzzleBatch
+ * instead, on T threads (1 by default), each one within the given time
+ * and number of nodes expanded (-nodes, which is also the cap on the
+ * memory of a board, as a search takes memory in proportion to the nodes
+ * it expands; see SearchBudget), and the lines are printed as the boards
+ * are solved, in the order of the files if -ordered is given; then a
+ * summary of the throughput and latencies goes to the error stream. The
+ * test files make a quick benchmark of it:
+ * 
+ * % java PuzzleChecker -threads 4 -ordered -timeout 10000 puzzle*.txt
+ * 
+ * Given -cache, the boards are solved through a SolutionCache saved to the
+ * file (and loaded from it, if it exists), so that the boards solved on a
+ * previous run, or their mirror images, are looked up rather than solved
+ * again; the hit rate and lookup time of the cache go to the error stream.
  * 
  * % java PuzzleChecker puzzle*.txt
  * puzzle00.txt: 0
@@ -28,13 +47,74 @@
  * 
  *************************************************************************/
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
 public class PuzzleChecker
 {
 
-    public static void main(String [ ] args)
+    private static final int CACHED = 1 << 16; // solutions kept in memory
+
+    public static void main(String [ ] args) throws IOException
+    {
+        // the engine to solve with, if any is given, and the batch options
+        PuzzleEngine engine = PuzzleEngine.named("astar");
+        boolean batch = false;
+        int threads = 1;
+        boolean ordered = false;
+        long millis = 0;
+        long nodes = 0;
+        File cacheFile = null;
+        int a = 0;
+        for (; a < args.length && args[a].startsWith("-"); a++) {
+            if (args[a].equals("-engine")) engine = PuzzleEngine.named(args[++a]);
+            else if (args[a].equals("-threads")) {
+                threads = Integer.parseInt(args[++a]);
+                batch = true;
+            }
+            else if (args[a].equals("-ordered")) {
+                ordered = true;
+                batch = true;
+            }
+            else if (args[a].equals("-timeout")) {
+                millis = Long.parseLong(args[++a]);
+                batch = true;
+            }
+            else if (args[a].equals("-nodes")) {
+                nodes = Long.parseLong(args[++a]);
+                batch = true;
+            }
+            else if (args[a].equals("-cache")) cacheFile = new File(args[++a]);
+            else throw new IllegalArgumentException("Unknown option " + args[a]);
+        }
+
+        // solve through the cache, if any is given
+        SolutionCache cache = null;
+        if (cacheFile != null) {
+            cache = new SolutionCache(CACHED, cacheFile);
+            engine = cache.engine(engine);
+        }
+
+        // solve them all at once, if asked to
+        if (batch)
+            new PuzzleBatch(engine, threads, millis, nodes, ordered).run(
+                    Arrays.copyOfRange(args, a, args.length), System.out,
+                    System.err);
+        else solveAll(engine, Arrays.copyOfRange(args, a, args.length));
+
+        if (cache != null) {
+            cache.save(cacheFile);
+            System.err.println("cache: " + cache);
+        }
+    }
+
+    // solve the board of every file, one by one
+    private static void solveAll(PuzzleEngine engine, String [ ] filenames)
     {
         // for each command-line argument
-        for (String filename : args) {
+        for (int a = 0; a < filenames.length; a++) {
+            String filename = filenames[a];
 
             // read in the board specified in the filename
             In in = new In(filename);
@@ -48,7 +128,7 @@ public class PuzzleChecker
 
             // solve the slider puzzle
             Board initial = new Board(tiles);
-            Solver solver = new Solver(initial);
+            PuzzleSolver solver = engine.solve(initial);
             System.out.println(filename + ": " + solver.moves());
         }
     }
@@ -0,0 +1,142 @@
+/****************************************************************************
+ * Compilation: javac PuzzleEngine.java
+ * Execution: not applicable
+ * Dependencies: Board.java PuzzleSolver.java Solver.java PackedSolver.java
+ *               IdaSolver.java LinearConflict.java PatternDatabase.java
+ *               HdaSolver.java BidirectionalSolver.java
+ * 
+ * Description: The slider puzzle engines by name, so that the programs that
+ * solve boards (PuzzleChecker, PuzzleBenchmark) can be told which one to
+ * use on the command line:
+ * 
+ *  - astar:   Solver, A* with the Manhattan priority function;
+ *  - closed:  Solver, also skipping the boards already expanded;
+ *  - packed:  PackedSolver, A* on packed boards (up to 4-by-4);
+ *  - ida:     IdaSolver, IDA* in memory linear in the number of moves;
+ *  - ida-lc:  IdaSolver with the linear conflict heuristic;
+ *  - ida-pdb: IdaSolver with the pattern databases of the dimension, for
+ *             the dimensions they have been built for (see PatternDatabase);
+ *  - bidir:   BidirectionalSolver, A* from both ends on packed boards (up
+ *             to 4-by-4);
+ *  - hda:     HdaSolver, parallel A* on packed boards (up to 4-by-4), on
+ *             as many threads as there are processors.
+ * 
+ ***************************************************************************/
+
+public abstract class PuzzleEngine
+{
+
+    private static final PuzzleEngine [ ] ENGINES = {
+        new PuzzleEngine("astar") {
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new Solver(initial);
+            }
+        },
+        new PuzzleEngine("closed") {
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new Solver(initial, true);
+            }
+        },
+        new PuzzleEngine("packed") {
+            public boolean supports(final int N)
+            {
+                return N <= 4;
+            }
+
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new PackedSolver(initial);
+            }
+        },
+        new PuzzleEngine("bidir") {
+            public boolean supports(final int N)
+            {
+                return N <= 4;
+            }
+
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new BidirectionalSolver(initial);
+            }
+        },
+        new PuzzleEngine("hda") {
+            public boolean supports(final int N)
+            {
+                return N <= 4;
+            }
+
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new HdaSolver(initial);
+            }
+        },
+        new PuzzleEngine("ida") {
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new IdaSolver(initial);
+            }
+        },
+        new PuzzleEngine("ida-lc") {
+            public PuzzleSolver solve(final Board initial)
+            {
+                return new IdaSolver(initial,
+                        new LinearConflict(initial.dimension()));
+            }
+        },
+        new PuzzleEngine("ida-pdb") {
+            public boolean supports(final int N)
+            {
+                return PatternDatabase.forDimension(N) != null;
+            }
+
+            public PuzzleSolver solve(final Board initial)
+            {
+                final int N = initial.dimension();
+                if (!supports(N))
+                    throw new java.lang.IllegalArgumentException(
+                            "No pattern databases for " + N + "-by-" + N);
+                return new IdaSolver(initial, PatternDatabase.forDimension(N));
+            }
+        },
+    };
+
+    private final String name; // name of the engine
+
+    // create an engine with the given name
+    protected PuzzleEngine(final String name)
+    {
+        this.name = name;
+    }
+
+    // all the engines
+    public static PuzzleEngine [ ] all()
+    {
+        return ENGINES.clone();
+    }
+
+    // the engine with the given name
+    public static PuzzleEngine named(final String name)
+    {
+        for (final PuzzleEngine engine : ENGINES)
+            if (engine.name.equals(name)) return engine;
+        throw new java.lang.IllegalArgumentException("Unknown engine " + name);
+    }
+
+    // name of the engine
+    public String name()
+    {
+        return name;
+    }
+
+    // can the engine solve boards of dimension N?
+    public boolean supports(final int N)
+    {
+        return true;
+    }
+
+    // solve the board
+    public abstract PuzzleSolver solve(Board initial);
+
+}
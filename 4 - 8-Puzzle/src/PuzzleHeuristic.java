@@ -0,0 +1,36 @@
+/****************************************************************************
+ * Compilation: javac PuzzleHeuristic.java
+ * Execution: not applicable
+ * Dependencies: none
+ * 
+ * Description: An estimate of the number of moves left to the goal of the
+ * boards of one dimension N, for the searches that keep a single mutable
+ * board (IdaSolver): the board is given as the array of the block at every
+ * position (row-major, 0 for the blank) together with the inverse array of
+ * the position of every block, and the estimate is computed once for the
+ * initial board, then kept up to date move by move from the change that
+ * every move makes. A heuristic that never overestimates gives shortest
+ * solutions; the larger it is, the fewer boards are expanded.
+ * 
+ *  - ManhattanHeuristic: the sum of the Manhattan distances of the blocks;
+ *  - LinearConflict:     that plus 2 moves per block in a linear conflict;
+ *  - PatternDatabase:    the sum of the exact costs of disjoint groups of
+ *                        blocks, looked up in precomputed tables.
+ * 
+ ***************************************************************************/
+
+public interface PuzzleHeuristic
+{
+
+    // board dimension N
+    int dimension();
+
+    // estimate for the board with block tiles[i] at position i, and block t
+    // at position where[t]
+    int estimate(int [ ] tiles, int [ ] where);
+
+    // change of the estimate when block t slides from position from into
+    // the blank at position to; the board is given before the move
+    int delta(int [ ] tiles, int [ ] where, int t, int from, int to);
+
+}
@@ -0,0 +1,28 @@
+/****************************************************************************
+ * Compilation: javac PuzzleSolver.java
+ * Execution: not applicable
+ * Dependencies: Board.java
+ * 
+ * Description: The interface shared by the slider puzzle solving engines
+ * (Solver, PackedSolver), so they can be swapped, cross-checked and timed
+ * against each other on the same boards. Every engine solves the initial
+ * board given to its constructor, and then answers the same queries.
+ * 
+ ***************************************************************************/
+
+public interface PuzzleSolver
+{
+
+    // is the initial board solvable?
+    boolean isSolvable();
+
+    // min number of moves to solve initial board; -1 if no solution
+    int moves();
+
+    // sequence of boards in a shortest solution; null if no solution
+    Iterable<Board> solution();
+
+    // number of search nodes expanded to find the solution
+    long expanded();
+
+}
@@ -0,0 +1,88 @@
+/****************************************************************************
+ * Compilation: javac SearchBudget.java
+ * Execution: not applicable
+ * Dependencies: none
+ * 
+ * Description: A cap on the time and on the number of nodes expanded by
+ * the searches of the current thread, so that a batch of boards solved by
+ * a pool of threads (see PuzzleBatch) gives up on the few that would take
+ * too long or too much memory instead of holding a thread or the whole
+ * heap. The node cap stands for the memory cap: the memory of Solver and
+ * PackedSolver grows with the number of nodes expanded, which is the one
+ * thing a search can count cheaply, whereas the heap is shared by all the
+ * threads. The solvers call check() every few thousand nodes, which throws
+ * Exceeded once over budget; with no budget set, it does nothing.
+ * 
+ ***************************************************************************/
+
+public final class SearchBudget
+{
+
+    // thrown by check() when a search goes over the budget
+    public static final class Exceeded extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Exceeded(final String message)
+        {
+            super(message);
+        }
+    }
+
+    // how often the solvers check the budget, in nodes (a power of 2)
+    public static final int EVERY = 4096;
+
+    private static final ThreadLocal<SearchBudget> CURRENT =
+            new ThreadLocal<SearchBudget>();
+
+    private final long    deadline; // System.nanoTime() to give up at
+    private final boolean timed;    // is there a deadline?
+    private final long    nodes;    // max number of nodes expanded
+
+    private SearchBudget(final long millis, final long nodes)
+    {
+        deadline = System.nanoTime() + millis * 1000000;
+        timed = millis > 0;
+        this.nodes = nodes > 0 ? nodes : Long.MAX_VALUE;
+    }
+
+    // cap the searches of the current thread from now on to the given
+    // number of milliseconds and of nodes expanded (0 for no cap)
+    public static void set(final long millis, final long nodes)
+    {
+        CURRENT.set(new SearchBudget(millis, nodes));
+    }
+
+    // the budget of the current thread, or null if none, to be passed on to
+    // the threads that a search runs on
+    public static SearchBudget current()
+    {
+        return CURRENT.get();
+    }
+
+    // set the budget of the current thread to the given one (null for none)
+    public static void set(final SearchBudget budget)
+    {
+        if (budget == null) CURRENT.remove();
+        else CURRENT.set(budget);
+    }
+
+    // lift the cap of the current thread
+    public static void clear()
+    {
+        CURRENT.remove();
+    }
+
+    // throw Exceeded if the search of the current thread, which has
+    // expanded the given number of nodes, is over its budget
+    public static void check(final long expanded)
+    {
+        final SearchBudget budget = CURRENT.get();
+        if (budget == null) return;
+        if (expanded > budget.nodes)
+            throw new Exceeded("node limit");
+        if (budget.timed && System.nanoTime() - budget.deadline > 0)
+            throw new Exceeded("time limit");
+    }
+
+}
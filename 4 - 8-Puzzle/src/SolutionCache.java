@@ -0,0 +1,388 @@
+/****************************************************************************
+ * Compilation: javac SolutionCache.java
+ * Execution: not applicable (see PuzzleChecker -cache)
+ * Dependencies: Board.java PackedBoard.java PuzzleSolver.java
+ *               PuzzleEngine.java Queue.java
+ * 
+ * Description: A cache of the solutions of 2-by-2 to 4-by-4 boards, so
+ * that boards solved before, or their mirror images, are not solved
+ * again. A solution is kept as its number of moves and the direction the
+ * blank moves in at every move, 2 bits each, and the boards are replayed
+ * from the initial board when asked for.
+ * 
+ * The key of a board is its packed form (see PackedBoard), made canonical
+ * over the symmetries of the square that leave the goal board as it is.
+ * Of the 8 of them, only the identity and the reflection in the main
+ * diagonal keep the blank of the goal in its corner: that reflection
+ * takes the block at row r and column c to row c and column r, and block
+ * t to the block whose goal position is there, so that the goal board
+ * maps to itself, and any board to one as many moves away, where the
+ * blank moves up instead of left, and down instead of right. The key is
+ * the least of the packed forms of the board and of its reflection.
+ * 
+ * There are two tiers: the solutions used lately, in a map with the least
+ * recently used one dropped when full (LRU), and those saved to a file, a
+ * sorted array of keys, then the offsets of their solutions, then the
+ * solutions, looked up by binary search on the file mapped into memory.
+ * Lookups only look into these two tiers. The solutions found since the
+ * file was loaded also go to a pending log, which is never looked up, for
+ * save() to merge them into the file; so a solution dropped from the LRU
+ * tier before it is saved is solved again if asked for. The number of
+ * lookups, of hits in every tier, and the time taken by the lookups are
+ * counted; all of the methods are synchronized, so a cache can be shared
+ * by the threads of a batch.
+ * 
+ ***************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache
+{
+
+    private static final int UNSOLVABLE = 0xFF; // moves of unsolvable boards
+
+    // a solution found in the cache
+    private static final class Cached implements PuzzleSolver
+    {
+        private final Board   initial;    // the board solved
+        private final int     moves;      // number of moves, or -1
+        private final int [ ] directions; // direction of every move
+
+        private Cached(final Board initial, final int moves,
+                final int [ ] directions)
+        {
+            this.initial = initial;
+            this.moves = moves;
+            this.directions = directions;
+        }
+
+        public boolean isSolvable()
+        {
+            return moves >= 0;
+        }
+
+        public int moves()
+        {
+            return moves;
+        }
+
+        public Iterable<Board> solution()
+        {
+            if (moves < 0) return null;
+            final Queue<Board> queue = new Queue<Board>();
+            Board board = initial;
+            queue.enqueue(board);
+            for (final int direction : directions) {
+                board = board.neighbor(direction);
+                queue.enqueue(board);
+            }
+            return queue;
+        }
+
+        public long expanded()
+        {
+            return 0;
+        }
+    }
+
+    private final LinkedHashMap<Long, byte [ ]> recent;  // LRU tier
+    private final Map<Long, byte [ ]>           pending; // not saved yet
+    private final PackedBoard [ ]               codecs;  // by dimension
+    private ByteBuffer                          file;    // saved tier
+    private int                                 saved;   // keys in file
+
+    private long lookups;    // number of lookups
+    private long memoryHits; // hits in the LRU tier
+    private long fileHits;   // hits in the file
+    private long nanos;      // time taken by the lookups
+
+    // an empty cache keeping up to capacity solutions in its LRU tier
+    public SolutionCache(final int capacity)
+    {
+        recent = new LinkedHashMap<Long, byte [ ]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Long, byte [ ]> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+        pending = new HashMap<Long, byte [ ]>();
+        codecs = new PackedBoard[5];
+        for (int N = 2; N <= 4; N++)
+            codecs[N] = new PackedBoard(N);
+    }
+
+    // a cache with the solutions saved to the file, if it exists
+    public SolutionCache(final int capacity, final File file)
+            throws IOException
+    {
+        this(capacity);
+        if (file.exists()) load(file);
+    }
+
+    // can the cache hold the solutions of N-by-N boards?
+    public static boolean supports(final int N)
+    {
+        return N >= 2 && N <= 4;
+    }
+
+    // the reflection of the packed N-by-N board in the main diagonal
+    private static long reflect(final long state, final int N)
+    {
+        long image = 0;
+        for (int i = 0; i < N * N; i++) {
+            final int t = PackedBoard.tile(state, i);
+            final int j = i % N * N + i / N;
+            final int u = t == 0 ? 0 : (t - 1) % N * N + (t - 1) / N + 1;
+            image |= (long) u << 4 * j;
+        }
+        return image;
+    }
+
+    // the solution of the board, or null if it is not in the cache
+    public synchronized PuzzleSolver lookup(final Board initial)
+    {
+        final long start = System.nanoTime();
+        lookups++;
+        PuzzleSolver solver = null;
+        final int N = initial.dimension();
+        if (supports(N)) {
+            final long state = codecs[N].pack(initial);
+            final long image = reflect(state, N);
+            final long key = Math.min(state, image);
+
+            byte [ ] record = recent.get(key);
+            if (record != null) memoryHits++;
+            else {
+                record = find(key);
+                if (record != null) {
+                    fileHits++;
+                    recent.put(key, record);
+                }
+            }
+            if (record != null)
+                solver = decode(initial, record, state != key);
+        }
+        nanos += System.nanoTime() - start;
+        return solver;
+    }
+
+    // add the solution of the board to the cache
+    public synchronized void put(final Board initial, final PuzzleSolver solver)
+    {
+        final int N = initial.dimension();
+        if (!supports(N)) return;
+        final long state = codecs[N].pack(initial);
+        final long image = reflect(state, N);
+        final long key = Math.min(state, image);
+        final byte [ ] record = encode(solver, N, state != key);
+        recent.put(key, record);
+        pending.put(key, record);
+    }
+
+    // the solution of the board, from the cache, or else found by the
+    // engine and added to the cache
+    public PuzzleSolver solve(final Board initial, final PuzzleEngine engine)
+    {
+        final PuzzleSolver cached = lookup(initial);
+        if (cached != null) return cached;
+        final PuzzleSolver solver = engine.solve(initial);
+        put(initial, solver);
+        return solver;
+    }
+
+    // the engine solving boards through the cache with the given engine
+    public PuzzleEngine engine(final PuzzleEngine engine)
+    {
+        return new PuzzleEngine(engine.name()) {
+            public boolean supports(final int N)
+            {
+                return engine.supports(N);
+            }
+
+            public PuzzleSolver solve(final Board initial)
+            {
+                return SolutionCache.this.solve(initial, engine);
+            }
+        };
+    }
+
+    // the record of a solution: its number of moves, then the directions
+    // of its moves, 4 to a byte, reflected if asked to
+    private static byte [ ] encode(final PuzzleSolver solver, final int N,
+            final boolean reflected)
+    {
+        if (!solver.isSolvable()) return new byte[] { (byte) UNSOLVABLE };
+        final int moves = solver.moves();
+        final byte [ ] record = new byte[1 + (moves + 3) / 4];
+        record[0] = (byte) moves;
+
+        int k = 0;
+        int previous = -1;
+        for (final Board board : solver.solution()) {
+            int blank = 0;
+            while (board.tile(blank) != 0)
+                blank++;
+            if (previous >= 0) {
+                int direction = blank == previous - 1 ? 0
+                        : blank == previous + 1 ? 1 : blank < previous ? 2 : 3;
+                if (reflected) direction ^= 2;
+                record[1 + k / 4] |= direction << 2 * (k % 4);
+                k++;
+            }
+            previous = blank;
+        }
+        return record;
+    }
+
+    // the solution of the board from its record, reflected if asked to
+    private static PuzzleSolver decode(final Board initial,
+            final byte [ ] record, final boolean reflected)
+    {
+        final int moves = record[0] & 0xFF;
+        if (moves == UNSOLVABLE) return new Cached(initial, -1, null);
+        final int [ ] directions = new int[moves];
+        for (int k = 0; k < moves; k++) {
+            directions[k] = record[1 + k / 4] >>> 2 * (k % 4) & 3;
+            if (reflected) directions[k] ^= 2;
+        }
+        return new Cached(initial, moves, directions);
+    }
+
+    // the record of the key in the file, or null if it is not there
+    private byte [ ] find(final long key)
+    {
+        if (file == null) return null;
+        int lo = 0;
+        int hi = saved - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final long k = file.getLong(4 + 8 * mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else {
+                final int offsets = 4 + 8 * saved;
+                final int from = file.getInt(offsets + 4 * mid);
+                final int to = file.getInt(offsets + 4 * mid + 4);
+                final byte [ ] record = new byte[to - from];
+                for (int i = 0; i < record.length; i++)
+                    record[i] = file.get(from + i);
+                return record;
+            }
+        }
+        return null;
+    }
+
+    // map the file into memory as the saved tier
+    private void load(final File path) throws IOException
+    {
+        final RandomAccessFile in = new RandomAccessFile(path, "r");
+        try {
+            file = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    in.length());
+            saved = file.getInt(0);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // save all the solutions, those of the file loaded and the pending
+    // ones, to the file (count, sorted keys, offsets, records), and map it
+    // as the saved tier; the file is written aside and then renamed, so the
+    // old one stays whole for whoever still has it mapped
+    public synchronized void save(final File path) throws IOException
+    {
+        final Map<Long, byte [ ]> all = new HashMap<Long, byte [ ]>();
+        for (int i = 0; i < saved; i++) {
+            final long key = file.getLong(4 + 8 * i);
+            all.put(key, find(key));
+        }
+        all.putAll(pending);
+
+        final long [ ] keys = new long[all.size()];
+        int n = 0;
+        for (final long key : all.keySet())
+            keys[n++] = key;
+        Arrays.sort(keys);
+
+        final File written = new File(path.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(written)));
+        try {
+            out.writeInt(keys.length);
+            for (final long key : keys)
+                out.writeLong(key);
+            int offset = 4 + 8 * keys.length + 4 * (keys.length + 1);
+            for (final long key : keys) {
+                out.writeInt(offset);
+                offset += all.get(key).length;
+            }
+            out.writeInt(offset);
+            for (final long key : keys)
+                out.write(all.get(key));
+        }
+        finally {
+            out.close();
+        }
+        if (!written.renameTo(path))
+            throw new IOException("Cannot rename " + written + " to " + path);
+
+        pending.clear();
+        load(path);
+    }
+
+    // number of lookups
+    public synchronized long lookups()
+    {
+        return lookups;
+    }
+
+    // number of lookups found in the LRU tier
+    public synchronized long memoryHits()
+    {
+        return memoryHits;
+    }
+
+    // number of lookups found in the file
+    public synchronized long fileHits()
+    {
+        return fileHits;
+    }
+
+    // fraction of the lookups found in the cache
+    public synchronized double hitRate()
+    {
+        if (lookups == 0) return 0;
+        return (double) (memoryHits + fileHits) / lookups;
+    }
+
+    // mean time taken by a lookup, in nanoseconds
+    public synchronized double meanLookupNanos()
+    {
+        if (lookups == 0) return 0;
+        return (double) nanos / lookups;
+    }
+
+    // the metrics of the cache
+    public synchronized String toString()
+    {
+        return String.format("%d lookups, %.1f%% hits (%d in LRU tier, %d in"
+                + " file), %.1f us per lookup", lookups, 100 * hitRate(),
+                memoryHits, fileHits, meanLookupNanos() / 1000);
+    }
+
+}
@@ -4,7 +4,8 @@
  * 
  * Compilation: javac Solver.java
  * Execution: java Solver file.txt
- * Dependencies: Board.java MaxPQ.java Stack.java StdOut.java
+ * Dependencies: Board.java BucketQueue.java StdOut.java
+ *               PuzzleSolver.java LongSet.java SearchBudget.java
  * 
  * Description: This class implements a solver for a 8-puzzle using an A*
  * algorithm. We define a search node of the game to be a board, the number of
@@ -20,69 +21,120 @@
  * distances from the blocks to their goal positions, plus the number of moves
  * made so far to the search node.
  * 
+ * As priorities are small integers, the priority queue is a BucketQueue,
+ * with constant time insertions and deletions, and ties between nodes of
+ * the same priority go to the one with more moves made, the closest to
+ * the goal by its Manhattan distance, so that the goal is reached after
+ * expanding fewer of the nodes of the last priority.
+ * 
+ * Only the nodes in the priority queue hold their board, which they need
+ * to be expanded; apart from that, a node is a single int in an array,
+ * the index of its previous node and the direction the blank moved to
+ * reach it (2 bits), so the boards of the nodes expanded are not kept
+ * alive through the chains of previous nodes. Going straight back to the
+ * previous board is the move in the opposite direction, and solution()
+ * reads the moves of the goal node back, then replays them from the
+ * initial board, building the boards one at a time as they are iterated.
+ * 
+ * Whether the initial board can be solved at all is decided up front, from
+ * the parity of its permutation (see Board.isSolvable()), so the search is
+ * only run on solvable boards, where it always reaches the goal.
+ * 
+ * Optionally, the boards already expanded are kept in a closed set, by
+ * their 64-bit Zobrist hash, and never expanded or queued again. Since the
+ * Manhattan priority function is consistent, the first time a board is
+ * expanded is through a shortest path, so this still finds a shortest
+ * solution, while it saves expanding again the boards reached along
+ * different paths. Two different boards could in principle share a hash,
+ * but the odds are about n^2 / 2^65 for n boards, under one in a million
+ * for the few million boards of a hard 4-by-4 search.
+ * 
  ***************************************************************************/
 
-public class Solver
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class Solver implements PuzzleSolver
 {
 
+    private static final int CAPACITY = 1 << 10; // initial number of nodes
+
     // helper class to implement each node of boards in a priority queue
-    private class BoardNode implements Comparable<BoardNode>
+    private class BoardNode
     {
-        private final Board     current;  // the current board
-        private final int       mhScore;  // Manhattan score of board
-        private final int       numMovs;  // number of moves need to get here
-        private final BoardNode prevBNS;  // pointer to previous node
-
-        // construct a BoardNode given its data
-        public BoardNode(final Board board, final BoardNode previous,
-                final int moves)
+        private final Board current;  // the current board
+        private final int   mhScore;  // Manhattan score of board
+        private final int   numMovs;  // number of moves need to get here
+        private final int   index;    // index of the node in links
+
+        // construct a BoardNode given its data, linking it to the previous
+        // node, from which the blank moved in the given direction
+        public BoardNode(final Board board, final int previous,
+                final int direction, final int moves)
         {
             current = board;
-            prevBNS = previous;
             numMovs = moves;
             mhScore = current.manhattan();
+            index = link(previous, direction);
         }
 
-        // compare with another node, using Manhattan priority function
-        public int compareTo(final BoardNode that)
+        // Manhattan priority function
+        public int priority()
         {
-            return mhScore + numMovs - (that.mhScore + that.numMovs);
+            return mhScore + numMovs;
         }
     }
 
-    private final MinPQ<BoardNode> alternat = new MinPQ<BoardNode>();
-    private final MinPQ<BoardNode> solution = new MinPQ<BoardNode>();
-    private boolean                solvable = true;
+    private final BucketQueue<BoardNode> solution = new BucketQueue<BoardNode>();
+    private final LongSet                closed;   // boards expanded, or null
+    private final Board                  initial;  // the board to solve
+    private final boolean                solvable;
+    private int [ ]                      links;    // previous << 2 | move
+    private int                          nodes;    // number of links
+    private BoardNode                    goal;     // the goal node
+    private long                         expanded; // nodes expanded
 
     // find a solution to the initial board (using the A* algorithm)
     public Solver(final Board initial)
     {
-        final Board twin = initial.twin();
-        solution.insert(new BoardNode(initial, null, 0));
-        alternat.insert(new BoardNode(twin, null, 0));
+        this(initial, false);
+    }
+
+    // find a solution to the initial board, skipping the boards already
+    // expanded if closed is true
+    public Solver(final Board initial, final boolean closed)
+    {
+        this.closed = closed ? new LongSet() : null;
+        this.initial = initial;
+        links = new int[CAPACITY];
+        solvable = initial.isSolvable();
+        if (!solvable) return;
 
+        insert(new BoardNode(initial, 0, 0, 0));
         solve();
     }
 
-    // is the initial board solvable?
-    public boolean isSolvable()
+    // add the link of a node to the previous node and the direction the
+    // blank moved in from there, and return its index
+    private int link(final int previous, final int direction)
     {
-        return solvable;
+        if (nodes == links.length)
+            links = java.util.Arrays.copyOf(links, 2 * nodes);
+        links[nodes] = previous << 2 | direction;
+        return nodes++;
     }
 
-    // checks if a solution is achieved (either in solution or alternative)
-    private boolean isSolved()
+    // is the initial board solvable?
+    public boolean isSolvable()
     {
-        if (solution.min().current.isGoal()) return true;
-        if (alternat.min().current.isGoal()) return true;
-        return false;
+        return solvable;
     }
 
     // min number of moves to solve initial board; -1 if no solution
     public int moves()
     {
         if (!solvable) return -1;
-        return solution.min().numMovs;
+        return goal.numMovs;
     }
 
     // sequence of boards in a shortest solution; null if no solution
@@ -90,33 +142,86 @@ public class Solver
     {
         if (!solvable) return null;
 
-        final Stack<Board> stack = new Stack<Board>();
-        for (BoardNode goal = solution.min(); goal != null; goal = goal.prevBNS)
-            stack.push(goal.current);
+        // the directions of the moves, read back from the goal node
+        final int [ ] directions = new int[goal.numMovs];
+        for (int k = goal.numMovs, node = goal.index; k > 0; k--) {
+            directions[k - 1] = links[node] & 3;
+            node = links[node] >>> 2;
+        }
 
-        return stack;
+        // the boards, replayed from the initial board as they are iterated
+        return new Iterable<Board>() {
+            public Iterator<Board> iterator()
+            {
+                return new Iterator<Board>() {
+                    private Board board; // the last board returned
+                    private int   k;     // number of boards returned
+
+                    public boolean hasNext()
+                    {
+                        return k <= directions.length;
+                    }
+
+                    public Board next()
+                    {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        board = k == 0 ? initial
+                                : board.neighbor(directions[k - 1]);
+                        k++;
+                        return board;
+                    }
+
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
     }
 
-    // helper method: finds the solution (the actual A* algorithm)
-    private void solve()
+    // number of search nodes expanded to find the solution
+    public long expanded()
     {
-        BoardNode sol = null;
-        BoardNode alt = null;
-
-        while (!isSolved()) {
-            sol = solution.delMin();
-            alt = alternat.delMin();
+        return expanded;
+    }
 
-            for (final Board b : sol.current.neighbors())
-                if (sol.prevBNS == null || !b.equals(sol.prevBNS.current))
-                    solution.insert(new BoardNode(b, sol, sol.numMovs + 1));
+    // number of distinct boards expanded, if they are kept; -1 otherwise
+    public int closed()
+    {
+        if (closed == null) return -1;
+        return closed.size();
+    }
 
-            for (final Board b : alt.current.neighbors())
-                if (alt.prevBNS == null || !b.equals(alt.prevBNS.current))
-                    alternat.insert(new BoardNode(b, alt, alt.numMovs + 1));
+    // helper method: finds the solution (the actual A* algorithm)
+    private void solve()
+    {
+        while (!solution.min().current.isGoal()) {
+            final BoardNode node = solution.delMin();
+            if (closed != null && !closed.add(node.current.zobrist()))
+                continue;
+            if (++expanded % SearchBudget.EVERY == 0)
+                SearchBudget.check(expanded);
+
+            // every direction but back to the previous board
+            final int back = node.numMovs == 0 ? -1
+                    : (links[node.index] & 3) ^ 1;
+            for (int direction = 0; direction < 4; direction++) {
+                if (direction == back) continue;
+                final Board b = node.current.neighbor(direction);
+                if (b == null) continue;
+                if (closed != null && closed.contains(b.zobrist())) continue;
+                insert(new BoardNode(b, node.index, direction,
+                        node.numMovs + 1));
+            }
         }
+        goal = solution.min();
+    }
 
-        if (alternat.min().current.isGoal()) solvable = false;
+    // insert the node into the priority queue
+    private void insert(final BoardNode node)
+    {
+        solution.insert(node, node.priority(), node.numMovs);
     }
 
     // solve a slider puzzle
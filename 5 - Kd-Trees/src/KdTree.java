@@ -18,8 +18,25 @@
  * rectangles split by the x-coordinate of the point at the root; and so
  * forth.
  * 
+ * A tree can also be built from an array of points at once, balanced: the
+ * points are kept in two flat arrays of coordinates, and the subtree of a
+ * range of them has at its root the median of the range, on x or y in
+ * turn, with the points before it as its left subtree and those after it
+ * as its right one, so that no child links are needed and the depth is
+ * about lg N. The medians are selected in place (quickselect), and large
+ * ranges are built in parallel on the common fork/join pool. Points
+ * inserted later go into linked nodes as usual, and the queries look into
+ * both parts.
+ * 
+ * The points are kept as they were given, so that queries return them
+ * instead of copies, and nearest() passes the rectangles of the nodes as
+ * their bounds: a nearest neighbor search allocates no objects at all.
+ * 
  ***************************************************************************/
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class KdTree
 {
 
@@ -31,33 +48,190 @@ public class KdTree
         private final boolean vertical;
         private final double  x;
         private final double  y;
+        private final Point2D point;
 
-        public KdNode(final double x, final double y, final KdNode l,
-                final KdNode r, final boolean v)
+        public KdNode(final Point2D p, final KdNode l, final KdNode r,
+                final boolean v)
         {
-            this.x = x;
-            this.y = y;
+            x = p.x();
+            y = p.y();
+            point = p;
             left = l;
             right = r;
             vertical = v;
         }
     }
 
+    // helper task building the balanced subtree of a range of points
+    private final class Build extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int     lo;
+        private final int     hi;
+        private final boolean vertical;
+
+        public Build(final int lo, final int hi, final boolean vertical)
+        {
+            this.lo = lo;
+            this.hi = hi;
+            this.vertical = vertical;
+        }
+
+        protected void compute()
+        {
+            if (hi - lo < PARALLEL) {
+                build(lo, hi, vertical);
+                return;
+            }
+
+            final int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, vertical);
+            invokeAll(new Build(lo, mid, !vertical),
+                    new Build(mid + 1, hi, !vertical));
+        }
+    }
+
     private static final RectHV CONTAINER = new RectHV(0, 0, 1, 1);
+    private static final int    PARALLEL  = 1 << 13; // least to fork on
     private KdNode              root;
     private int                 size;
+    private final double [ ]    xs;     // x of the points built at once
+    private final double [ ]    ys;     // y of the points built at once
+    private final Point2D [ ]   points; // the points built at once
+    private final int           flat;   // number of points built at once
 
     // construct an empty tree of points
     public KdTree()
     {
         size = 0;
         root = null;
+        xs = new double[0];
+        ys = new double[0];
+        points = new Point2D[0];
+        flat = 0;
+    }
+
+    // construct a balanced tree of the given points (without duplicates)
+    public KdTree(final Point2D [ ] points)
+    {
+        xs = new double[points.length];
+        ys = new double[points.length];
+        this.points = new Point2D[points.length];
+        flat = distinct(points);
+        size = flat;
+        root = null;
+
+        if (flat < PARALLEL) build(0, flat, true);
+        else ForkJoinPool.commonPool().invoke(new Build(0, flat, true));
+    }
+
+    // helper: copy the distinct points into xs and ys, returning how many
+    // there are (duplicates are found with a hash table of their indices)
+    private int distinct(final Point2D [ ] points)
+    {
+        final int [ ] slots = new int[2 * Integer.highestOneBit(
+                2 * points.length + 1)]; // index + 1, 0 for empty
+        final int mask = slots.length - 1;
+        int n = 0;
+        for (final Point2D p : points) {
+            final double x = p.x();
+            final double y = p.y();
+
+            // (adding 0.0 turns -0.0 into 0.0, which is equal to it)
+            final long h = (Double.doubleToLongBits(x + 0.0) * 31
+                    + Double.doubleToLongBits(y + 0.0)) * 0x9E3779B97F4A7C15L;
+            int s = (int) (h >>> 32) & mask;
+            while (slots[s] != 0 && (xs[slots[s] - 1] != x
+                    || ys[slots[s] - 1] != y))
+                s = s + 1 & mask;
+            if (slots[s] != 0) continue;
+
+            slots[s] = n + 1;
+            xs[n] = x;
+            ys[n] = y;
+            this.points[n] = p;
+            n++;
+        }
+        return n;
+    }
+
+    // helper: build the balanced subtree of the points in [lo, hi)
+    private void build(final int lo, final int hi, final boolean vertical)
+    {
+        if (hi - lo < 2) return;
+
+        final int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, vertical);
+        build(lo, mid, !vertical);
+        build(mid + 1, hi, !vertical);
+    }
+
+    // helper: rearrange the points in [lo, hi) so that the k-th one is in
+    // its sorted place on x (if vertical) or y, with none greater before it
+    // and none less after it
+    private void select(int lo, int hi, final int k, final boolean vertical)
+    {
+        final double [ ] key = vertical ? xs : ys;
+
+        hi--;
+        while (lo < hi) {
+            // the median of the first, middle and last keys as pivot
+            final double a = key[lo];
+            final double b = key[(lo + hi) >>> 1];
+            final double c = key[hi];
+            final double pivot = a < b ? b < c ? b : a < c ? c : a
+                    : a < c ? a : b < c ? c : b;
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[i] < pivot)
+                    i++;
+                while (key[j] > pivot)
+                    j--;
+                if (i <= j) swap(i++, j--);
+            }
+
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    // helper: swap the points at i and j
+    private void swap(final int i, final int j)
+    {
+        final double x = xs[i];
+        final double y = ys[i];
+        final Point2D p = points[i];
+        xs[i] = xs[j];
+        ys[i] = ys[j];
+        points[i] = points[j];
+        xs[j] = x;
+        ys[j] = y;
+        points[j] = p;
     }
 
     // does the tree contain the point p?
     public boolean contains(final Point2D p)
     {
-        return contains(root, p.x(), p.y());
+        return contains(0, flat, true, p.x(), p.y())
+                || contains(root, p.x(), p.y());
+    }
+
+    // helper: does the balanced subtree of [lo, hi) contain (x, y)?
+    private boolean contains(final int lo, final int hi,
+            final boolean vertical, final double x, final double y)
+    {
+        if (lo >= hi) return false;
+        final int mid = (lo + hi) >>> 1;
+        if (xs[mid] == x && ys[mid] == y) return true;
+
+        // points on the split line may be on either side
+        final double d = vertical ? x - xs[mid] : y - ys[mid];
+        if (d <= 0 && contains(lo, mid, !vertical, x, y)) return true;
+        return d >= 0 && contains(mid + 1, hi, !vertical, x, y);
     }
 
     // helper: does the subtree rooted at node contain (x, y)?
@@ -81,9 +255,38 @@ public class KdTree
         StdDraw.setPenRadius();
         CONTAINER.draw();
 
+        draw(0, flat, true, 0, 0, 1, 1);
         draw(root, CONTAINER);
     }
 
+    // helper: draw the balanced subtree of [lo, hi), inside the given bounds
+    private void draw(final int lo, final int hi, final boolean vertical,
+            final double xmin, final double ymin, final double xmax,
+            final double ymax)
+    {
+        if (lo >= hi) return;
+        final int mid = (lo + hi) >>> 1;
+
+        // draw the point
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.setPenRadius(0.01);
+        points[mid].draw();
+
+        // draw its division line, then the children
+        StdDraw.setPenRadius();
+        if (vertical) {
+            StdDraw.setPenColor(StdDraw.RED);
+            StdDraw.line(xs[mid], ymin, xs[mid], ymax);
+            draw(lo, mid, false, xmin, ymin, xs[mid], ymax);
+            draw(mid + 1, hi, false, xs[mid], ymin, xmax, ymax);
+        } else {
+            StdDraw.setPenColor(StdDraw.BLUE);
+            StdDraw.line(xmin, ys[mid], xmax, ys[mid]);
+            draw(lo, mid, true, xmin, ymin, xmax, ys[mid]);
+            draw(mid + 1, hi, true, xmin, ys[mid], xmax, ymax);
+        }
+    }
+
     // helper: draw node point and its division line (given by rect)
     private void draw(final KdNode node, final RectHV rect)
     {
@@ -92,7 +295,7 @@ public class KdTree
         // draw the point
         StdDraw.setPenColor(StdDraw.BLACK);
         StdDraw.setPenRadius(0.01);
-        new Point2D(node.x, node.y).draw();
+        node.point.draw();
 
         // get the min and max points of division line
         Point2D min, max;
@@ -122,7 +325,7 @@ public class KdTree
         // if new node, create it
         if (node == null) {
             size++;
-            return new KdNode(p.x(), p.y(), null, null, vertical);
+            return new KdNode(p, null, null, vertical);
         }
 
         // if already in, return it
@@ -140,6 +343,7 @@ public class KdTree
     // add the point p to the tree (if it is not already in the tree)
     public void insert(final Point2D p)
     {
+        if (contains(0, flat, true, p.x(), p.y())) return;
         root = insert(root, p, true);
     }
 
@@ -158,50 +362,53 @@ public class KdTree
             return new RectHV(rect.xmin(), rect.ymin(), rect.xmax(), node.y);
     }
 
-    // helper: nearest neighbor of (x,y) in subtree rooted at node
-    private Point2D nearest(final KdNode node, final RectHV rect,
+    // helper: nearest neighbor of (x, y) in subtree rooted at node, whose
+    // rectangle is given by its bounds, or candidate if none is nearer
+    private Point2D nearest(final KdNode node, final double xmin,
+            final double ymin, final double xmax, final double ymax,
             final double x, final double y, final Point2D candidate)
     {
         if (node == null) return candidate;
 
+        // squared distances from the query to the candidate and to the rect
         double dqn = 0.0;
         double drq = 0.0;
-        RectHV left = null;
-        RectHV rigt = null;
-        final Point2D query = new Point2D(x, y);
         Point2D nearest = candidate;
 
         if (nearest != null) {
-            dqn = query.distanceSquaredTo(nearest);
-            drq = rect.distanceSquaredTo(query);
+            dqn = distance(nearest, x, y);
+            final double dx = x < xmin ? xmin - x : x > xmax ? x - xmax : 0;
+            final double dy = y < ymin ? ymin - y : y > ymax ? y - ymax : 0;
+            drq = dx * dx + dy * dy;
         }
 
         if (nearest == null || dqn > drq) {
-            final Point2D point = new Point2D(node.x, node.y);
-            if (nearest == null || dqn > query.distanceSquaredTo(point))
-                nearest = point;
+            if (nearest == null || dqn > distance(node.point, x, y))
+                nearest = node.point;
 
             if (node.vertical) {
-                left = new RectHV(rect.xmin(), rect.ymin(), node.x, rect.ymax());
-                rigt = new RectHV(node.x, rect.ymin(), rect.xmax(), rect.ymax());
-
                 if (x < node.x) {
-                    nearest = nearest(node.left, left, x, y, nearest);
-                    nearest = nearest(node.right, rigt, x, y, nearest);
+                    nearest = nearest(node.left, xmin, ymin, node.x, ymax, x,
+                            y, nearest);
+                    nearest = nearest(node.right, node.x, ymin, xmax, ymax, x,
+                            y, nearest);
                 } else {
-                    nearest = nearest(node.right, rigt, x, y, nearest);
-                    nearest = nearest(node.left, left, x, y, nearest);
+                    nearest = nearest(node.right, node.x, ymin, xmax, ymax, x,
+                            y, nearest);
+                    nearest = nearest(node.left, xmin, ymin, node.x, ymax, x,
+                            y, nearest);
                 }
             } else {
-                left = new RectHV(rect.xmin(), rect.ymin(), rect.xmax(), node.y);
-                rigt = new RectHV(rect.xmin(), node.y, rect.xmax(), rect.ymax());
-
                 if (y < node.y) {
-                    nearest = nearest(node.left, left, x, y, nearest);
-                    nearest = nearest(node.right, rigt, x, y, nearest);
+                    nearest = nearest(node.left, xmin, ymin, xmax, node.y, x,
+                            y, nearest);
+                    nearest = nearest(node.right, xmin, node.y, xmax, ymax, x,
+                            y, nearest);
                 } else {
-                    nearest = nearest(node.right, rigt, x, y, nearest);
-                    nearest = nearest(node.left, left, x, y, nearest);
+                    nearest = nearest(node.right, xmin, node.y, xmax, ymax, x,
+                            y, nearest);
+                    nearest = nearest(node.left, xmin, ymin, xmax, node.y, x,
+                            y, nearest);
                 }
             }
         }
@@ -209,10 +416,61 @@ public class KdTree
         return nearest;
     }
 
+    // helper: squared distance of the point p to (x, y)
+    private static double distance(final Point2D p, final double x,
+            final double y)
+    {
+        final double dx = p.x() - x;
+        final double dy = p.y() - y;
+        return dx * dx + dy * dy;
+    }
+
     // a nearest neighbor in the set to p; null if set is empty
     public Point2D nearest(final Point2D p)
     {
-        return nearest(root, CONTAINER, p.x(), p.y(), null);
+        return nearest(p.x(), p.y());
+    }
+
+    // a nearest neighbor in the set to (x, y); null if set is empty (no
+    // object is allocated: the point returned is the one inserted)
+    public Point2D nearest(final double x, final double y)
+    {
+        Point2D candidate = null;
+        if (flat > 0) candidate = points[nearest(0, flat, true, x, y, -1)];
+        return nearest(root, 0, 0, 1, 1, x, y, candidate);
+    }
+
+    // helper: index of the nearest point to (x, y) in the balanced subtree
+    // of [lo, hi), or best if none is nearer
+    private int nearest(final int lo, final int hi, final boolean vertical,
+            final double x, final double y, int best)
+    {
+        if (lo >= hi) return best;
+        final int mid = (lo + hi) >>> 1;
+        if (best < 0 || distance(mid, x, y) < distance(best, x, y))
+            best = mid;
+
+        // the side of the query first, then the other if the split line is
+        // nearer than the best so far
+        final double d = vertical ? x - xs[mid] : y - ys[mid];
+        if (d < 0) {
+            best = nearest(lo, mid, !vertical, x, y, best);
+            if (d * d < distance(best, x, y))
+                best = nearest(mid + 1, hi, !vertical, x, y, best);
+        } else {
+            best = nearest(mid + 1, hi, !vertical, x, y, best);
+            if (d * d < distance(best, x, y))
+                best = nearest(lo, mid, !vertical, x, y, best);
+        }
+        return best;
+    }
+
+    // helper: squared distance of the point at i to (x, y)
+    private double distance(final int i, final double x, final double y)
+    {
+        final double dx = xs[i] - x;
+        final double dy = ys[i] - y;
+        return dx * dx + dy * dy;
     }
 
     // helper: points in subtree rooted at node inside rect
@@ -222,8 +480,7 @@ public class KdTree
         if (node == null) return;
 
         if (rect.intersects(nrect)) {
-            final Point2D p = new Point2D(node.x, node.y);
-            if (rect.contains(p)) queue.enqueue(p);
+            if (rect.contains(node.point)) queue.enqueue(node.point);
             range(node.left, leftRect(nrect, node), rect, queue);
             range(node.right, rightRect(nrect, node), rect, queue);
         }
@@ -233,11 +490,31 @@ public class KdTree
     public Iterable<Point2D> range(final RectHV rect)
     {
         final Queue<Point2D> queue = new Queue<Point2D>();
+        range(0, flat, true, rect, queue);
         range(root, CONTAINER, rect, queue);
 
         return queue;
     }
 
+    // helper: points in the balanced subtree of [lo, hi) inside rect
+    private void range(final int lo, final int hi, final boolean vertical,
+            final RectHV rect, final Queue<Point2D> queue)
+    {
+        if (lo >= hi) return;
+        final int mid = (lo + hi) >>> 1;
+        final double x = xs[mid];
+        final double y = ys[mid];
+        if (x >= rect.xmin() && x <= rect.xmax() && y >= rect.ymin()
+                && y <= rect.ymax()) queue.enqueue(points[mid]);
+
+        // points on the split line may be on either side
+        final double split = vertical ? x : y;
+        if (split >= (vertical ? rect.xmin() : rect.ymin()))
+            range(lo, mid, !vertical, rect, queue);
+        if (split <= (vertical ? rect.xmax() : rect.ymax()))
+            range(mid + 1, hi, !vertical, rect, queue);
+    }
+
     // helper: get the right rectangle of node inside parent's rect
     private RectHV rightRect(final RectHV rect, final KdNode node)
     {